@@ -2,12 +2,16 @@ package com.ecommercepimo.ecommerce.controller;
 
 import com.ecommercepimo.ecommerce.dto.*;
 import com.ecommercepimo.ecommerce.entity.Order;
+import com.ecommercepimo.ecommerce.service.FlashSaleService;
+import com.ecommercepimo.ecommerce.service.IdempotencyService;
+import com.ecommercepimo.ecommerce.service.OrderIngestionPipeline;
 import com.ecommercepimo.ecommerce.service.OrderService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -26,23 +30,45 @@ import java.time.LocalDateTime;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderIngestionPipeline orderIngestionPipeline;
+    private final IdempotencyService idempotencyService;
+    private final FlashSaleService flashSaleService;
 
     /**
      * Crear nueva orden
      * POST /api/orders
+     * Con el header Idempotency-Key los reintentos devuelven la orden ya creada
      */
     @PostMapping
     public ResponseEntity<OrderResponse> createOrder(
             @Valid @RequestBody OrderCreateRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             Authentication authentication) {
 
         String userEmail = authentication.getName();
         log.info("Creating order for user: {}", userEmail);
 
-        OrderResponse order = orderService.createOrder(userEmail, request);
+        if (idempotencyKey == null) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(submitOrder(userEmail, request, null));
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > 100) {
+            throw new RuntimeException("Idempotency-Key invlida");
+        }
+
+        OrderResponse order = idempotencyService.execute(userEmail, idempotencyKey,
+                () -> submitOrder(userEmail, request, idempotencyKey),
+                orderId -> orderService.getOrderById(orderId, userEmail));
         return ResponseEntity.status(HttpStatus.CREATED).body(order);
     }
 
+    private OrderResponse submitOrder(String userEmail, OrderCreateRequest request, String idempotencyKey) {
+        // Los productos en venta flash pasan antes por la admisin de tokens; con la
+        // ingesta por lotes activa la orden se confirma junto a otras en un mismo commit
+        return flashSaleService.admit(request, () -> orderIngestionPipeline.isEnabled()
+                ? orderIngestionPipeline.submitAndWait(userEmail, request, idempotencyKey)
+                : orderService.createOrder(userEmail, request, idempotencyKey));
+    }
+
     /**
      * Obtener rdenes del usuario autenticado
      * GET /api/orders/my-orders
@@ -105,6 +131,24 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    /**
+     * Recorrer todas las rdenes por cursor, sin conteo total (solo admins)
+     * GET /api/orders/admin/all/scroll?cursor={cursor}
+     */
+    @GetMapping("/admin/all/scroll")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPage<OrderResponse>> scrollAllOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDir) {
+
+        log.debug("Scrolling all orders (admin)");
+        CursorPage<OrderResponse> orders = orderService.scrollAllOrders(cursor, size, sortBy,
+                Sort.Direction.fromOptionalString(sortDir).orElse(Sort.Direction.DESC));
+        return ResponseEntity.ok(orders);
+    }
+
     /**
      * Obtener rdenes por estado (solo admins)
      * GET /api/orders/admin/status/{status}
@@ -1,21 +1,31 @@
 package com.ecommercepimo.ecommerce.controller;
 
 import com.ecommercepimo.ecommerce.dto.*;
+import com.ecommercepimo.ecommerce.search.ProductFacets;
+import com.ecommercepimo.ecommerce.service.FlashSaleService;
 import com.ecommercepimo.ecommerce.service.ProductService;
 import com.ecommercepimo.ecommerce.service.MLIntegrationService;
+import com.ecommercepimo.ecommerce.service.ProductCatalogCache;
+import com.ecommercepimo.ecommerce.service.SerializedResponseCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/products")
@@ -26,6 +36,8 @@ public class ProductController {
 
     private final ProductService productService;
     private final MLIntegrationService mlIntegrationService;
+    private final FlashSaleService flashSaleService;
+    private final SerializedResponseCache serializedResponseCache;
 
     /**
      * Obtener todos los productos activos
@@ -40,31 +52,104 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    /**
+     * Recorrer productos activos por cursor, sin conteo total
+     * GET /api/products/scroll?cursor={cursor}&size={size}&sortBy={campo}&sortDir={asc|desc}
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<ProductResponse>> scrollProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir) {
+
+        log.debug("Scrolling products sorted by {} {}", sortBy, sortDir);
+        CursorPage<ProductResponse> products = productService.scrollProducts(cursor, size, sortBy,
+                Sort.Direction.fromOptionalString(sortDir).orElse(Sort.Direction.ASC));
+        return ResponseEntity.ok(products);
+    }
+
     /**
      * Obtener producto por ID
      * GET /api/products/{id}
      */
     @GetMapping("/{id}")
-    public ResponseEntity<ProductResponse> getProductById(@PathVariable Long id) {
+    public ResponseEntity<ProductResponse> getProductById(@PathVariable Long id,
+                                                          WebRequest webRequest,
+                                                          HttpServletRequest request,
+                                                          HttpServletResponse response) throws IOException {
         log.debug("Getting product by ID: {}", id);
         ProductResponse product = productService.getProductById(id);
-        return ResponseEntity.ok(product);
+        String etag = ProductCatalogCache.etag(product);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        // Bytes ya serializados escritos directamente en la respuesta
+        if (serializedResponseCache.write(product, etag, request, response)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(product);
     }
 
     /**
      * Buscar productos por nombre
-     * GET /api/products/search?q={query}
+     * GET /api/products/search?q={query}&fuzzy={true|false}
      */
     @GetMapping("/search")
     public ResponseEntity<Page<ProductResponse>> searchProducts(
             @RequestParam("q") String query,
+            @RequestParam(defaultValue = "false") boolean fuzzy,
             @PageableDefault(size = 20) Pageable pageable) {
 
         log.debug("Searching products with query: {}", query);
-        Page<ProductResponse> products = productService.searchProductsByName(query, pageable);
+        Page<ProductResponse> products = productService.searchProductsByName(query, pageable, fuzzy);
         return ResponseEntity.ok(products);
     }
 
+    /**
+     * Bsqueda de texto completo por relevancia (nombre, descripcin y categora)
+     * GET /api/products/fulltext?q={query}
+     */
+    @GetMapping("/fulltext")
+    public ResponseEntity<Page<ProductSearchResult>> searchProductsFullText(
+            @RequestParam("q") String query,
+            @PageableDefault(size = 20) Pageable pageable) {
+
+        log.debug("Full-text search with query: {}", query);
+        Page<ProductSearchResult> results = productService.searchProductsFullText(query, pageable);
+        return ResponseEntity.ok(results);
+    }
+
+    /**
+     * Conteos por faceta (categora, rango de precio, rating, stock) para un filtro
+     * GET /api/products/facets?q={query}&category={c}&priceRange={r}&minRating={n}&inStock={true|false}
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<ProductFacetsResponse> getFacets(
+            @RequestParam(value = "q", required = false) String query,
+            @RequestParam(value = "category", required = false) Set<String> categories,
+            @RequestParam(value = "priceRange", required = false) Set<String> priceRanges,
+            @RequestParam(required = false) Integer minRating,
+            @RequestParam(defaultValue = "false") boolean inStock) {
+
+        ProductFacetsResponse facets = productService.getFacets(query,
+                new ProductFacets.Filter(categories, priceRanges, minRating, inStock));
+        return ResponseEntity.ok(facets);
+    }
+
+    /**
+     * Autocompletar nombres de productos y categoras
+     * GET /api/products/suggest?prefix={prefix}
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionResponse>> suggestProducts(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        List<SuggestionResponse> suggestions = productService.suggestProducts(prefix, limit);
+        return ResponseEntity.ok(suggestions);
+    }
+
     /**
      * Obtener productos por categora
      * GET /api/products/category/{category}
@@ -99,10 +184,20 @@ public class ProductController {
      * GET /api/products/featured
      */
     @GetMapping("/featured")
-    public ResponseEntity<List<ProductResponse>> getFeaturedProducts() {
+    public ResponseEntity<List<ProductResponse>> getFeaturedProducts(WebRequest webRequest,
+                                                                     HttpServletRequest request,
+                                                                     HttpServletResponse response) throws IOException {
         log.debug("Getting featured products");
+        // El ETag se toma antes de la lista: nunca es ms nuevo que el contenido enviado
+        String etag = productService.getFeaturedEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
         List<ProductResponse> products = productService.getFeaturedProducts();
-        return ResponseEntity.ok(products);
+        if (serializedResponseCache.write(products, etag, request, response)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(products);
     }
 
     /**
@@ -110,10 +205,14 @@ public class ProductController {
      * GET /api/products/categories
      */
     @GetMapping("/categories")
-    public ResponseEntity<List<String>> getCategories() {
+    public ResponseEntity<List<String>> getCategories(WebRequest webRequest) {
         log.debug("Getting available categories");
+        String etag = productService.getCategoriesEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
         List<String> categories = productService.getAvailableCategories();
-        return ResponseEntity.ok(categories);
+        return ResponseEntity.ok().eTag(etag).body(categories);
     }
 
     /**
@@ -185,6 +284,33 @@ public class ProductController {
         return ResponseEntity.ok(prediction);
     }
 
+    /**
+     * Iniciar venta flash de un producto destacado (solo admins)
+     * POST /api/products/{id}/flash-sale?units=
+     */
+    @PostMapping("/{id}/flash-sale")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> startFlashSale(
+            @PathVariable Long id,
+            @RequestParam Integer units) {
+
+        log.info("Starting flash sale for product {}: {} units", id, units);
+        flashSaleService.startSale(id, units);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Terminar venta flash (solo admins)
+     * DELETE /api/products/{id}/flash-sale
+     */
+    @DeleteMapping("/{id}/flash-sale")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> endFlashSale(@PathVariable Long id) {
+        log.info("Ending flash sale for product {}", id);
+        flashSaleService.endSale(id);
+        return ResponseEntity.noContent().build();
+    }
+
     // DTO para actualizacin de stock
     public static class UpdateStockRequest {
         private Integer newStock;
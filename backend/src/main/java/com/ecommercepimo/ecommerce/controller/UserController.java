@@ -1,19 +1,26 @@
 package com.ecommercepimo.ecommerce.controller;
 
+import com.ecommercepimo.ecommerce.dto.CursorPage;
 import com.ecommercepimo.ecommerce.dto.UserResponse;
 import com.ecommercepimo.ecommerce.entity.User;
 import com.ecommercepimo.ecommerce.mapper.UserMapper;
 import com.ecommercepimo.ecommerce.repository.UserRepository;
+import com.ecommercepimo.ecommerce.service.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -24,6 +31,10 @@ import java.util.stream.Collectors;
 @PreAuthorize("hasRole('ADMIN')")
 public class UserController {
 
+    private static final Map<String, Class<?>> SCROLL_KEYS = Map.of(
+            "id", Long.class,
+            "createdAt", LocalDateTime.class);
+
     private final UserRepository userRepository;
     private final UserMapper userMapper;
 
@@ -41,6 +52,31 @@ public class UserController {
         return ResponseEntity.ok(userResponses);
     }
 
+    /**
+     * Recorrer usuarios por cursor, sin conteo total
+     * GET /api/users/scroll?cursor={cursor}&size={size}&sortBy={id|createdAt}&sortDir={asc|desc}
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPage<UserResponse>> scrollUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir) {
+
+        log.debug("Scrolling users (admin)");
+        if (!SCROLL_KEYS.containsKey(sortBy)) {
+            throw new RuntimeException("Campo de ordenacin no soportado: " + sortBy);
+        }
+        Sort sort = KeysetCursor.sort(sortBy,
+                Sort.Direction.fromOptionalString(sortDir).orElse(Sort.Direction.ASC));
+        ScrollPosition position = KeysetCursor.decode(cursor, sort, SCROLL_KEYS);
+
+        CursorPage<UserResponse> users = KeysetCursor.page(
+                userRepository.findAllBy(position, sort, Limit.of(KeysetCursor.limit(size))),
+                userMapper::toUserResponse);
+        return ResponseEntity.ok(users);
+    }
+
     /**
      * Obtener usuario por ID
      * GET /api/users/{id}
@@ -0,0 +1,21 @@
+package com.ecommercepimo.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductFacetsResponse {
+
+    private int total;
+    private Map<String, Integer> categories;
+    private Map<String, Integer> priceRanges;
+    private Map<String, Integer> ratings;
+    private int inStock;
+}
@@ -0,0 +1,17 @@
+package com.ecommercepimo.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductSearchResult {
+
+    private ProductResponse product;
+    private Float rank;
+    private String highlight;
+}
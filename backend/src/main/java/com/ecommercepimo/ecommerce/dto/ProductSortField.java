@@ -0,0 +1,45 @@
+package com.ecommercepimo.ecommerce.dto;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+
+/**
+ * Campos por los que se pueden ordenar los listados de productos.
+ *
+ * Cada campo tiene un índice (campo, id) parcial sobre los productos activos
+ * (migraciones V6 y V7), así ningún orden pedido por el cliente termina en un
+ * sort de la tabla completa. Cualquier otro campo se rechaza.
+ */
+public enum ProductSortField {
+
+    ID("id"),
+    NAME("name"),
+    PRICE("price"),
+    CREATED_AT("createdAt"),
+    RATING("rating");
+
+    private final String property;
+
+    ProductSortField(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public static ProductSortField fromProperty(String property) {
+        return Arrays.stream(values())
+                .filter(field -> field.property.equals(property))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Campo de ordenación no soportado: " + property));
+    }
+
+    /**
+     * Verificar que todos los campos del orden están permitidos
+     */
+    public static void validate(Sort sort) {
+        sort.forEach(order -> fromProperty(order.getProperty()));
+    }
+}
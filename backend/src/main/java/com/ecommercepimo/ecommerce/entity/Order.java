@@ -21,7 +21,8 @@ import java.util.Set;
 public class Order {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "order_number", unique = true, nullable = false)
@@ -73,6 +74,19 @@ public class Order {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Igualdad por identidad: el equals/hashCode de @Data recorra usuario, orden e items
+    // en los dos sentidos (StackOverflowError al guardar) y, al cambiar con el id asignado,
+    // rompa el HashSet en el que se aaden los items antes de persistirse
+    @Override
+    public boolean equals(Object other) {
+        return this == other;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(this);
+    }
+
     // Business methods
     public void addOrderItem(OrderItem orderItem) {
         orderItems.add(orderItem);
@@ -0,0 +1,24 @@
+package com.ecommercepimo.ecommerce.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+/**
+ * Paginación por keyset con comparación de filas: la página siguiente se pide con
+ * {@code WHERE (e.clave, e.id) > (:clave, :id)} (o {@code <} en orden descendente),
+ * que PostgreSQL resuelve como un único rango sobre el índice compuesto
+ * {@code (clave, id)}. La consulta que genera Spring Data para {@link Window}
+ * expande la condición en {@code clave > ? OR (clave = ? AND id > ?)}, que el
+ * planificador no siempre convierte en un rango del índice.
+ */
+public interface KeysetScrollRepository {
+
+    /**
+     * Siguiente ventana de {@code entityType} tras {@code position}. {@code condition}
+     * es un filtro JPQL opcional sobre el alias {@code e}; todas las propiedades de
+     * {@code sort} deben ir en la misma dirección y venir ya validadas.
+     */
+    <T> Window<T> scroll(Class<T> entityType, String condition, ScrollPosition position, Sort sort, Limit limit);
+}
@@ -38,6 +38,15 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
            "WHERE oi.product.id = :productId AND o.status = 'DELIVERED'")
     Long getTotalSoldQuantityByProduct(@Param("productId") Long productId);
 
+    /**
+     * Unidades vendidas por producto en rdenes no canceladas
+     */
+    @Query("SELECT oi.product.id, SUM(oi.quantity) FROM OrderItem oi " +
+           "JOIN oi.order o " +
+           "WHERE o.status <> 'CANCELLED' " +
+           "GROUP BY oi.product.id")
+    List<Object[]> sumQuantityGroupByProduct();
+
     /**
      * Obtener productos comprados por un usuario
      */
@@ -2,9 +2,15 @@ package com.ecommercepimo.ecommerce.repository;
 
 import com.ecommercepimo.ecommerce.entity.Order;
 import com.ecommercepimo.ecommerce.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -15,13 +21,20 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, KeysetScrollRepository {
 
     /**
      * Buscar orden por nmero de orden
      */
     Optional<Order> findByOrderNumber(String orderNumber);
 
+    /**
+     * Listar rdenes por keyset (sin OFFSET ni conteo)
+     */
+    default Window<Order> findAllBy(ScrollPosition position, Sort sort, Limit limit) {
+        return scroll(Order.class, null, position, sort, limit);
+    }
+
     /**
      * Buscar rdenes por usuario
      */
@@ -85,4 +98,11 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT o FROM Order o WHERE o.user = :user " +
            "ORDER BY o.createdAt DESC")
     List<Order> findRecentOrdersByUser(@Param("user") User user, Pageable pageable);
+
+    /**
+     * Obtener orden bloqueando su fila (cancelacin)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
 }
\ No newline at end of file
@@ -1,24 +1,44 @@
 package com.ecommercepimo.ecommerce.repository;
 
 import com.ecommercepimo.ecommerce.entity.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, KeysetScrollRepository {
 
     /**
      * Buscar productos activos
      */
     Page<Product> findByActiveTrue(Pageable pageable);
 
+    /**
+     * Buscar productos activos por keyset (sin OFFSET ni conteo)
+     */
+    default Window<Product> findByActiveTrue(ScrollPosition position, Sort sort, Limit limit) {
+        return scroll(Product.class, "e.active = true", position, sort, limit);
+    }
+
+    /**
+     * Siguiente tanda de productos activos por ID, para recorrer el catlogo entero
+     * sin OFFSET (cada tanda empieza en el ndice de la clave primaria)
+     */
+    List<Product> findByActiveTrueAndIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
     /**
      * Buscar productos por categora
      */
@@ -31,6 +51,26 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
            "LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))")
     Page<Product> findByActiveTrueAndNameContaining(@Param("name") String name, Pageable pageable);
 
+    /**
+     * Bsqueda de texto completo (columna search_vector) ordenada por relevancia,
+     * con el fragmento resaltado calculado en la base de datos sobre el mismo texto
+     * que indexa search_vector (nombre, categora y descripcin, V5): si solo coincide
+     * el nombre o la categora el fragmento tambin los resalta. El texto se escapa
+     * como HTML antes de resaltarlo: las nicas etiquetas del fragmento son los {@code <mark>}
+     */
+    @Query(value = "SELECT p.id AS id, ts_rank(p.search_vector, q) AS rank, " +
+                   "ts_headline('spanish', " +
+                   "replace(replace(replace(replace(replace(concat_ws(' ', p.name, p.category, p.description), " +
+                   "'&', '&amp;'), '<', '&lt;'), '>', '&gt;'), '\"', '&quot;'), '''', '&#39;'), q, " +
+                   "'StartSel=<mark>, StopSel=</mark>, MaxFragments=2, MaxWords=30, MinWords=10') AS highlight " +
+                   "FROM products p, websearch_to_tsquery('spanish', :query) q " +
+                   "WHERE p.active = true AND p.search_vector @@ q " +
+                   "ORDER BY rank DESC, p.id",
+           countQuery = "SELECT COUNT(*) FROM products p " +
+                        "WHERE p.active = true AND p.search_vector @@ websearch_to_tsquery('spanish', :query)",
+           nativeQuery = true)
+    Page<TextMatch> searchFullText(@Param("query") String query, Pageable pageable);
+
     /**
      * Buscar productos en un rango de precios
      */
@@ -66,6 +106,12 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT DISTINCT p.category FROM Product p WHERE p.active = true ORDER BY p.category")
     List<String> findDistinctCategories();
 
+    /**
+     * Categora de cada producto activo, para mantener en memoria el conjunto de categoras
+     */
+    @Query("SELECT p.id AS id, p.category AS category FROM Product p WHERE p.active = true")
+    List<CategoryAssignment> findActiveCategoryAssignments();
+
     /**
      * Buscar productos similares por categora (excluir producto actual)
      */
@@ -80,4 +126,28 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
      */
     @Query("SELECT COUNT(p) FROM Product p WHERE p.active = true AND p.category = :category")
     Long countByCategory(@Param("category") String category);
+
+    /**
+     * Cargar y bloquear productos en orden de ID (ingesta de rdenes por lotes)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<Product> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Resultado de la bsqueda de texto completo
+     */
+    interface TextMatch {
+        Long getId();
+        Float getRank();
+        String getHighlight();
+    }
+
+    /**
+     * Categora asignada a un producto
+     */
+    interface CategoryAssignment {
+        Long getId();
+        String getCategory();
+    }
 }
\ No newline at end of file
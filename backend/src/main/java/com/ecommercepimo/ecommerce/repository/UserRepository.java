@@ -1,28 +1,45 @@
 package com.ecommercepimo.ecommerce.repository;
 
 import com.ecommercepimo.ecommerce.entity.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, KeysetScrollRepository {
 
     /**
      * Buscar usuario por email (usado para autenticacin)
      */
     Optional<User> findByEmail(String email);
 
+    /**
+     * Buscar varios usuarios por email en una sola consulta
+     */
+    List<User> findByEmailIn(Collection<String> emails);
+
     /**
      * Verificar si existe un usuario con el email
      */
     boolean existsByEmail(String email);
 
+    /**
+     * Listar usuarios por keyset (sin OFFSET ni conteo)
+     */
+    default Window<User> findAllBy(ScrollPosition position, Sort sort, Limit limit) {
+        return scroll(User.class, null, position, sort, limit);
+    }
+
     /**
      * Buscar usuarios activos
      */
@@ -0,0 +1,103 @@
+package com.ecommercepimo.ecommerce.search;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * BK-tree de términos con distancia de Levenshtein.
+ *
+ * Cada hijo cuelga de su padre según la distancia entre ambos términos; por la
+ * desigualdad triangular, buscar los términos a distancia {@code <= k} de una
+ * consulta solo necesita bajar por los hijos en el rango {@code [d - k, d + k]},
+ * lo que descarta la mayor parte del vocabulario en cada nivel.
+ *
+ * Solo admite inserciones. Las escrituras deben estar serializadas por quien lo
+ * usa; las lecturas pueden ser concurrentes con ellas.
+ */
+final class BkTree {
+
+    private volatile Node root;
+
+    void add(String term) {
+        if (root == null) {
+            root = new Node(term);
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = levenshtein(node.term, term);
+            if (distance == 0) {
+                return;
+            }
+            Node child = node.children.get(distance);
+            if (child == null) {
+                node.children.put(distance, new Node(term));
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Visitar los términos a distancia {@code <= maxDistance} de {@code query}
+     */
+    void search(String query, int maxDistance, ObjIntConsumer<String> visitor) {
+        Node start = root;
+        if (start == null) {
+            return;
+        }
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(start);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = levenshtein(node.term, query);
+            if (distance <= maxDistance) {
+                visitor.accept(node.term, distance);
+            }
+            for (int d = Math.max(1, distance - maxDistance); d <= distance + maxDistance; d++) {
+                Node child = node.children.get(d);
+                if (child != null) {
+                    pending.push(child);
+                }
+            }
+        }
+    }
+
+    static int levenshtein(String a, String b) {
+        if (a.length() < b.length()) {
+            String swap = a;
+            a = b;
+            b = swap;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (ca == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static final class Node {
+
+        private final String term;
+        private final Map<Integer, Node> children = new ConcurrentHashMap<>(4);
+
+        Node(String term) {
+            this.term = term;
+        }
+    }
+}
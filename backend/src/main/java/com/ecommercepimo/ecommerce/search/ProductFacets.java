@@ -0,0 +1,487 @@
+package com.ecommercepimo.ecommerce.search;
+
+import com.ecommercepimo.ecommerce.entity.Product;
+import com.ecommercepimo.ecommerce.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Conteos por faceta (categoría, rango de precio, banda de rating y stock) de los
+ * productos activos, calculados en memoria.
+ *
+ * Los productos se guardan por columnas en arrays primitivos (id, ordinal de
+ * categoría, precio en céntimos, rating en centésimas, stock) y cada valor de
+ * faceta tiene un {@link BitSet} con las filas que lo cumplen. Un conteo es una
+ * intersección de bitsets: cada faceta se cuenta aplicando los filtros de las
+ * demás, para que el usuario vea cuántos resultados tendría al cambiar la suya.
+ *
+ * Los cambios de producto se aplican tras el commit. Los cambios de stock por
+ * reservas de órdenes, que se hacen por SQL, solo marcan el producto; la siguiente
+ * consulta relee de una vez el stock de los marcados. La reconstrucción periódica
+ * corrige lo que no haya pasado por aquí.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductFacets {
+
+    // Límites inferiores de los rangos de precio, en céntimos
+    private static final long[] PRICE_BOUNDS = {0, 5_000, 10_000, 25_000, 50_000, 100_000};
+    private static final String[] PRICE_LABELS = {"0-50", "50-100", "100-250", "250-500", "500-1000", "1000+"};
+    private static final String[] RATING_LABELS = {"0-1", "1-2", "2-3", "3-4", "4-5"};
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Una sola reconstrucción a la vez: la del arranque y la periódica pueden coincidir
+    private final Lock rebuildLock = new ReentrantLock();
+
+    // Protegidos por el lock; changedDuringRebuild solo existe mientras se reconstruye
+    // y changedDuringRefresh mientras se relee el stock de los productos marcados
+    private Columns columns = new Columns();
+    private Map<Long, Row> changedDuringRebuild;
+    private Set<Long> changedDuringRefresh;
+
+    // Productos con stock cambiado por SQL pendientes de releer
+    private final Set<Long> staleStock = ConcurrentHashMap.newKeySet();
+    private final Object refreshLock = new Object();
+
+    /**
+     * Cargar la instantánea al arrancar y corregirla periódicamente. Si ya hay una
+     * reconstrucción en curso no se lanza otra: esa recoge los cambios confirmados
+     * mientras lee.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.facets.refresh-ms:60000}",
+               fixedDelayString = "${app.facets.refresh-ms:60000}")
+    public void rebuild() {
+        if (!rebuildLock.tryLock()) {
+            log.debug("Product facets rebuild already running; skipping");
+            return;
+        }
+        try {
+            rebuildColumns();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void rebuildColumns() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Columns rebuilt = new Columns();
+        try {
+            List<Product> batch;
+            long lastId = 0;
+            do {
+                batch = productRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(lastId, Limit.of(LOAD_PAGE_SIZE));
+                batch.forEach(product -> rebuilt.upsert(Row.of(product)));
+                if (!batch.isEmpty()) {
+                    lastId = batch.get(batch.size() - 1).getId();
+                }
+            } while (batch.size() == LOAD_PAGE_SIZE);
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild.values().forEach(rebuilt::upsert);
+            changedDuringRebuild = null;
+            columns = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Product facets rebuilt: {} products in {} ms",
+                rebuilt.alive.cardinality(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Actualizar la fila de un producto creado, modificado o desactivado.
+     * Con transacción activa el cambio se aplica tras el commit.
+     */
+    public void onProductChanged(Product product) {
+        Row row = Row.of(product);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(row);
+                }
+            });
+        } else {
+            apply(row);
+        }
+    }
+
+    /**
+     * Marcar productos cuyo stock cambió por SQL (reservas y liberaciones de
+     * órdenes). Debe llamarse tras el commit; no consulta la base de datos.
+     */
+    public void onStockChanged(Collection<Long> productIds) {
+        staleStock.addAll(productIds);
+    }
+
+    /**
+     * Conteos por faceta para un filtro. {@code restrictTo} limita el universo a
+     * unos IDs (por ejemplo, los resultados de una búsqueda); null para todos.
+     */
+    public FacetCounts count(Filter filter, Collection<Long> restrictTo) {
+        refreshStock();
+        lock.readLock().lock();
+        try {
+            Columns c = columns;
+            BitSet universe = (BitSet) c.alive.clone();
+            if (restrictTo != null) {
+                universe.and(c.rowsOf(restrictTo));
+            }
+
+            BitSet byCategory = c.categoryMask(filter.categories());
+            BitSet byPrice = c.priceMask(filter.priceRanges());
+            BitSet byRating = c.ratingMask(filter.minRating());
+            BitSet byStock = filter.inStockOnly() ? c.inStock : null;
+
+            Map<String, Integer> categories = new LinkedHashMap<>();
+            BitSet base = intersect(universe, byPrice, byRating, byStock);
+            for (int ordinal = 0; ordinal < c.categoryNames.size(); ordinal++) {
+                int count = intersectCount(base, c.byCategory.get(ordinal));
+                if (count > 0) {
+                    categories.put(c.categoryNames.get(ordinal), count);
+                }
+            }
+
+            Map<String, Integer> priceRanges = new LinkedHashMap<>();
+            base = intersect(universe, byCategory, byRating, byStock);
+            for (int bucket = 0; bucket < PRICE_LABELS.length; bucket++) {
+                priceRanges.put(PRICE_LABELS[bucket], intersectCount(base, c.byPrice[bucket]));
+            }
+
+            Map<String, Integer> ratings = new LinkedHashMap<>();
+            base = intersect(universe, byCategory, byPrice, byStock);
+            for (int band = 0; band < RATING_LABELS.length; band++) {
+                ratings.put(RATING_LABELS[band], intersectCount(base, c.byRating[band]));
+            }
+
+            base = intersect(universe, byCategory, byPrice, byRating);
+            int inStock = intersectCount(base, c.inStock);
+
+            int total = intersect(base, byStock).cardinality();
+            return new FacetCounts(total, categories, priceRanges, ratings, inStock);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Releer en una sola consulta los productos marcados. Una fila que
+     * {@link #onProductChanged} aplicó mientras tanto no se pisa con la lectura; si
+     * después hubo otra reserva, el producto ya está marcado de nuevo.
+     */
+    private void refreshStock() {
+        if (staleStock.isEmpty()) {
+            return;
+        }
+        synchronized (refreshLock) {
+            List<Long> productIds = new ArrayList<>();
+            for (Iterator<Long> it = staleStock.iterator(); it.hasNext(); ) {
+                productIds.add(it.next());
+                it.remove();
+            }
+            if (productIds.isEmpty()) {
+                return;
+            }
+
+            lock.writeLock().lock();
+            try {
+                changedDuringRefresh = new HashSet<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            List<Row> rows;
+            try {
+                rows = productRepository.findAllById(productIds).stream().map(Row::of).toList();
+            } catch (RuntimeException ex) {
+                staleStock.addAll(productIds);
+                lock.writeLock().lock();
+                try {
+                    changedDuringRefresh = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw ex;
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (Row row : rows) {
+                    if (!changedDuringRefresh.contains(row.id())) {
+                        upsert(row);
+                    }
+                }
+                changedDuringRefresh = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void apply(Row row) {
+        lock.writeLock().lock();
+        try {
+            upsert(row);
+            if (changedDuringRefresh != null) {
+                changedDuringRefresh.add(row.id());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Con el lock de escritura tomado
+    private void upsert(Row row) {
+        columns.upsert(row);
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.put(row.id(), row);
+        }
+    }
+
+    private static BitSet intersect(BitSet universe, BitSet... masks) {
+        BitSet result = (BitSet) universe.clone();
+        for (BitSet mask : masks) {
+            if (mask != null) {
+                result.and(mask);
+            }
+        }
+        return result;
+    }
+
+    private static int intersectCount(BitSet a, BitSet b) {
+        BitSet result = (BitSet) a.clone();
+        result.and(b);
+        return result.cardinality();
+    }
+
+    private static int priceBucket(long priceCents) {
+        int bucket = 0;
+        while (bucket + 1 < PRICE_BOUNDS.length && priceCents >= PRICE_BOUNDS[bucket + 1]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static int ratingBand(int ratingHundredths) {
+        return Math.min(RATING_LABELS.length - 1, Math.max(0, ratingHundredths / 100));
+    }
+
+    /**
+     * Filtro de facetas: categorías y rangos de precio (etiquetas) seleccionados,
+     * rating mínimo (0-4, por bandas) y solo productos con stock
+     */
+    public record Filter(Set<String> categories, Set<String> priceRanges, Integer minRating, boolean inStockOnly) {
+    }
+
+    /**
+     * Total de productos que cumplen el filtro y conteos por valor de cada faceta
+     */
+    public record FacetCounts(int total, Map<String, Integer> categories, Map<String, Integer> priceRanges,
+                              Map<String, Integer> ratings, int inStock) {
+    }
+
+    /**
+     * Valores de faceta de un producto
+     */
+    private record Row(long id, String category, long priceCents, int ratingHundredths, int stock, boolean active) {
+
+        static Row of(Product product) {
+            BigDecimal price = product.getPrice() == null ? BigDecimal.ZERO : product.getPrice();
+            BigDecimal rating = product.getRating() == null ? BigDecimal.ZERO : product.getRating();
+            return new Row(product.getId(), product.getCategory(), price.movePointRight(2).longValue(),
+                    rating.movePointRight(2).intValue(), product.getStock() == null ? 0 : product.getStock(),
+                    Boolean.TRUE.equals(product.getActive()));
+        }
+    }
+
+    /**
+     * Instantánea por columnas con un bitset por valor de faceta. Las filas de
+     * productos desactivados se marcan libres y se reutilizan.
+     */
+    private static final class Columns {
+
+        private long[] ids = new long[LOAD_PAGE_SIZE];
+        private int[] categoryOrdinals = new int[LOAD_PAGE_SIZE];
+        private long[] pricesCents = new long[LOAD_PAGE_SIZE];
+        private int[] ratingsHundredths = new int[LOAD_PAGE_SIZE];
+        private int[] stocks = new int[LOAD_PAGE_SIZE];
+        private int rows;
+
+        private final Map<Long, Integer> rowById = new HashMap<>();
+        private final Deque<Integer> freeRows = new ArrayDeque<>();
+
+        private final List<String> categoryNames = new ArrayList<>();
+        private final Map<String, Integer> categoryOrdinalByName = new HashMap<>();
+        private final List<BitSet> byCategory = new ArrayList<>();
+        private final BitSet[] byPrice = newBitSets(PRICE_LABELS.length);
+        private final BitSet[] byRating = newBitSets(RATING_LABELS.length);
+        private final BitSet inStock = new BitSet();
+        private final BitSet alive = new BitSet();
+
+        void upsert(Row row) {
+            Integer existing = rowById.get(row.id());
+            if (existing != null) {
+                clear(existing);
+            }
+            if (!row.active()) {
+                if (existing != null) {
+                    rowById.remove(row.id());
+                    freeRows.push(existing);
+                }
+                return;
+            }
+
+            int index = existing != null ? existing : allocate();
+            rowById.put(row.id(), index);
+            ids[index] = row.id();
+            categoryOrdinals[index] = categoryOrdinal(row.category());
+            pricesCents[index] = row.priceCents();
+            ratingsHundredths[index] = row.ratingHundredths();
+            stocks[index] = row.stock();
+
+            alive.set(index);
+            byCategory.get(categoryOrdinals[index]).set(index);
+            byPrice[priceBucket(pricesCents[index])].set(index);
+            byRating[ratingBand(ratingsHundredths[index])].set(index);
+            if (stocks[index] > 0) {
+                inStock.set(index);
+            }
+        }
+
+        BitSet rowsOf(Collection<Long> productIds) {
+            BitSet result = new BitSet();
+            for (Long productId : productIds) {
+                Integer index = rowById.get(productId);
+                if (index != null) {
+                    result.set(index);
+                }
+            }
+            return result;
+        }
+
+        BitSet categoryMask(Set<String> categories) {
+            if (categories == null || categories.isEmpty()) {
+                return null;
+            }
+            BitSet mask = new BitSet();
+            for (String category : categories) {
+                Integer ordinal = categoryOrdinalByName.get(category);
+                if (ordinal != null) {
+                    mask.or(byCategory.get(ordinal));
+                }
+            }
+            return mask;
+        }
+
+        BitSet priceMask(Set<String> priceRanges) {
+            if (priceRanges == null || priceRanges.isEmpty()) {
+                return null;
+            }
+            BitSet mask = new BitSet();
+            for (int bucket = 0; bucket < PRICE_LABELS.length; bucket++) {
+                if (priceRanges.contains(PRICE_LABELS[bucket])) {
+                    mask.or(byPrice[bucket]);
+                }
+            }
+            return mask;
+        }
+
+        BitSet ratingMask(Integer minRating) {
+            if (minRating == null || minRating <= 0) {
+                return null;
+            }
+            BitSet mask = new BitSet();
+            for (int band = Math.min(minRating, RATING_LABELS.length); band < RATING_LABELS.length; band++) {
+                mask.or(byRating[band]);
+            }
+            return mask;
+        }
+
+        private void clear(int index) {
+            alive.clear(index);
+            byCategory.get(categoryOrdinals[index]).clear(index);
+            byPrice[priceBucket(pricesCents[index])].clear(index);
+            byRating[ratingBand(ratingsHundredths[index])].clear(index);
+            inStock.clear(index);
+        }
+
+        private int allocate() {
+            if (!freeRows.isEmpty()) {
+                return freeRows.pop();
+            }
+            if (rows == ids.length) {
+                int capacity = ids.length * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                categoryOrdinals = Arrays.copyOf(categoryOrdinals, capacity);
+                pricesCents = Arrays.copyOf(pricesCents, capacity);
+                ratingsHundredths = Arrays.copyOf(ratingsHundredths, capacity);
+                stocks = Arrays.copyOf(stocks, capacity);
+            }
+            return rows++;
+        }
+
+        private int categoryOrdinal(String category) {
+            String name = category == null ? "" : category;
+            return categoryOrdinalByName.computeIfAbsent(name, key -> {
+                categoryNames.add(key);
+                byCategory.add(new BitSet());
+                return categoryNames.size() - 1;
+            });
+        }
+
+        private static BitSet[] newBitSets(int count) {
+            BitSet[] bitSets = new BitSet[count];
+            for (int i = 0; i < count; i++) {
+                bitSets[i] = new BitSet();
+            }
+            return bitSets;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.ecommercepimo.ecommerce.search;
+
+import com.ecommercepimo.ecommerce.entity.Product;
+import com.ecommercepimo.ecommerce.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido en memoria sobre el nombre de los productos activos.
+ *
+ * Mantiene dos listas de postings: por token (palabras del nombre) y por trigrama
+ * (todas las subcadenas de 3 caracteres). Una búsqueda "contiene" se resuelve con la
+ * lista de trigramas más corta de la consulta y una verificación exacta sobre cada
+ * candidato, con la misma semántica que {@code LOWER(name) LIKE '%q%'} pero sin
+ * recorrer la tabla; además se ignoran los acentos.
+ *
+ * Para consultas con erratas, un {@link BkTree} sobre el vocabulario de tokens
+ * expande cada palabra de la consulta a los términos a distancia de edición 1-2.
+ *
+ * Se construye al arrancar y se actualiza de forma incremental tras el commit de
+ * cada alta, modificación o baja de producto. Las escrituras se serializan; las
+ * lecturas no toman bloqueos.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+    private static final int LOAD_PAGE_SIZE = 1000;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Map<String, Comparator<IndexedProduct>> SORTABLE = Map.of(
+            "id", Comparator.comparing(IndexedProduct::id),
+            "name", Comparator.comparing(IndexedProduct::normalizedName),
+            "price", nullsLast(IndexedProduct::price),
+            "rating", nullsLast(IndexedProduct::rating),
+            "createdAt", nullsLast(IndexedProduct::createdAt));
+
+    private final ProductRepository productRepository;
+
+    private final Map<Long, IndexedProduct> documents = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> tokenPostings = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> gramPostings = new ConcurrentHashMap<>();
+    private final BkTree vocabularyTree = new BkTree();
+
+    private volatile boolean ready;
+
+    /**
+     * Cargar todos los productos activos por tandas de ID (keyset)
+     */
+    @Order(0)
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        List<Product> batch;
+        long lastId = 0;
+        do {
+            batch = productRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(lastId, Limit.of(LOAD_PAGE_SIZE));
+            batch.forEach(product -> apply(IndexedProduct.of(product)));
+            if (!batch.isEmpty()) {
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == LOAD_PAGE_SIZE);
+
+        ready = true;
+        log.info("Product search index built: {} products, {} tokens, {} trigrams in {} ms",
+                documents.size(), tokenPostings.size(), gramPostings.size(), System.currentTimeMillis() - start);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Reindexar un producto creado o modificado (los inactivos se quitan del índice).
+     * Con transacción activa el cambio se aplica tras el commit.
+     */
+    public void onProductChanged(Product product) {
+        IndexedProduct document = IndexedProduct.of(product);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(document);
+                }
+            });
+        } else {
+            apply(document);
+        }
+    }
+
+    /**
+     * IDs de los productos activos cuyo nombre contiene {@code query}, paginados.
+     * Vacío si el orden pedido no se puede resolver con los campos del índice.
+     */
+    public Optional<Page<Long>> search(String query, Pageable pageable) {
+        Comparator<IndexedProduct> order = comparator(pageable.getSort());
+        if (order == null) {
+            return Optional.empty();
+        }
+
+        String needle = normalize(query);
+        List<IndexedProduct> matches = candidates(needle).stream()
+                .filter(Objects::nonNull)
+                .filter(document -> document.normalizedName().contains(needle))
+                .sorted(order)
+                .toList();
+        return Optional.of(page(matches, pageable));
+    }
+
+    /**
+     * Búsqueda tolerante a erratas: cada palabra de la consulta se expande a los
+     * términos del vocabulario a distancia de edición 1 (palabras de 3 a 5 letras)
+     * o 2 (más largas) y un producto debe casar con todas las palabras. Se ordena
+     * por la suma de distancias y después por el orden pedido.
+     */
+    public Optional<Page<Long>> fuzzySearch(String query, Pageable pageable) {
+        Comparator<IndexedProduct> order = comparator(pageable.getSort());
+        if (order == null) {
+            return Optional.empty();
+        }
+
+        Map<Long, Integer> distances = null;
+        for (String word : tokens(normalize(query))) {
+            Map<Long, Integer> wordDistances = new HashMap<>();
+            vocabularyTree.search(word, maxEdits(word), (term, distance) ->
+                    productsWithToken(term).forEach(id -> wordDistances.merge(id, distance, Math::min)));
+
+            if (distances == null) {
+                distances = wordDistances;
+            } else {
+                distances.keySet().retainAll(wordDistances.keySet());
+                distances.replaceAll((id, distance) -> distance + wordDistances.get(id));
+            }
+            if (distances.isEmpty()) {
+                break;
+            }
+        }
+        if (distances == null) {
+            return Optional.of(page(List.of(), pageable));
+        }
+
+        Map<Long, Integer> relevance = distances;
+        List<IndexedProduct> matches = relevance.keySet().stream()
+                .map(documents::get)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.<IndexedProduct>comparingInt(document -> relevance.get(document.id()))
+                        .thenComparing(order))
+                .toList();
+        return Optional.of(page(matches, pageable));
+    }
+
+    /**
+     * Documento indexado de un producto activo
+     */
+    public Optional<IndexedProduct> get(Long productId) {
+        return Optional.ofNullable(documents.get(productId));
+    }
+
+    /**
+     * Documentos de todos los productos activos indexados
+     */
+    public Collection<IndexedProduct> documents() {
+        return Collections.unmodifiableCollection(documents.values());
+    }
+
+    /**
+     * Vocabulario de tokens de los nombres indexados
+     */
+    public Set<String> vocabulary() {
+        return Collections.unmodifiableSet(tokenPostings.keySet());
+    }
+
+    /**
+     * IDs de los productos cuyo nombre contiene el token exacto
+     */
+    public Set<Long> productsWithToken(String token) {
+        return tokenPostings.getOrDefault(token, Set.of());
+    }
+
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    public static Set<String> tokens(String normalized) {
+        Set<String> tokens = new HashSet<>();
+        for (String token : TOKEN_SEPARATOR.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static int maxEdits(String word) {
+        if (word.length() < 3) {
+            return 0;
+        }
+        return word.length() <= 5 ? 1 : 2;
+    }
+
+    private static Page<Long> page(List<IndexedProduct> matches, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(matches.stream().map(IndexedProduct::id).toList());
+        }
+        int from = (int) Math.min(pageable.getOffset(), matches.size());
+        int to = Math.min(from + pageable.getPageSize(), matches.size());
+        List<Long> ids = matches.subList(from, to).stream().map(IndexedProduct::id).toList();
+        return new PageImpl<>(ids, pageable, matches.size());
+    }
+
+    private Collection<IndexedProduct> candidates(String needle) {
+        if (needle.length() < GRAM_LENGTH) {
+            return documents.values();
+        }
+        Set<Long> shortest = null;
+        for (String gram : grams(needle)) {
+            Set<Long> postings = gramPostings.get(gram);
+            if (postings == null) {
+                return List.of();
+            }
+            if (shortest == null || postings.size() < shortest.size()) {
+                shortest = postings;
+            }
+        }
+        return shortest.stream().map(documents::get).toList();
+    }
+
+    private synchronized void apply(IndexedProduct document) {
+        IndexedProduct previous = document.active()
+                ? documents.put(document.id(), document)
+                : documents.remove(document.id());
+
+        if (previous != null) {
+            unlink(tokenPostings, tokens(previous.normalizedName()), previous.id());
+            unlink(gramPostings, grams(previous.normalizedName()), previous.id());
+        }
+        if (document.active()) {
+            Set<String> tokens = tokens(document.normalizedName());
+            link(tokenPostings, tokens, document.id());
+            // Los términos que quedan sin productos siguen en el árbol y no aportan resultados
+            tokens.forEach(vocabularyTree::add);
+            link(gramPostings, grams(document.normalizedName()), document.id());
+        }
+    }
+
+    private static void link(Map<String, Set<Long>> postings, Set<String> keys, Long productId) {
+        for (String key : keys) {
+            postings.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(productId);
+        }
+    }
+
+    private static void unlink(Map<String, Set<Long>> postings, Set<String> keys, Long productId) {
+        for (String key : keys) {
+            postings.computeIfPresent(key, (k, ids) -> {
+                ids.remove(productId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private static Set<String> grams(String normalized) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= normalized.length(); i++) {
+            grams.add(normalized.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private static Comparator<IndexedProduct> comparator(Sort sort) {
+        Comparator<IndexedProduct> result = null;
+        for (Sort.Order order : sort) {
+            Comparator<IndexedProduct> next = SORTABLE.get(order.getProperty());
+            if (next == null) {
+                return null;
+            }
+            next = order.isAscending() ? next : next.reversed();
+            result = result == null ? next : result.thenComparing(next);
+        }
+        Comparator<IndexedProduct> byId = SORTABLE.get("id");
+        return result == null ? byId : result.thenComparing(byId);
+    }
+
+    private static <U extends Comparable<? super U>> Comparator<IndexedProduct> nullsLast(
+            Function<IndexedProduct, U> key) {
+        return Comparator.comparing(key, Comparator.nullsLast(Comparator.naturalOrder()));
+    }
+
+    /**
+     * Datos del producto que necesita el índice para filtrar y ordenar
+     */
+    public record IndexedProduct(Long id, String name, String normalizedName, String category,
+                                 BigDecimal price, BigDecimal rating, LocalDateTime createdAt,
+                                 boolean active) {
+
+        static IndexedProduct of(Product product) {
+            return new IndexedProduct(product.getId(), product.getName(), normalize(product.getName()),
+                    product.getCategory(), product.getPrice(), product.getRating(), product.getCreatedAt(),
+                    Boolean.TRUE.equals(product.getActive()));
+        }
+    }
+}
@@ -0,0 +1,476 @@
+package com.ecommercepimo.ecommerce.search;
+
+import com.ecommercepimo.ecommerce.entity.Product;
+import com.ecommercepimo.ecommerce.repository.OrderItemRepository;
+import com.ecommercepimo.ecommerce.search.ProductSearchIndex.IndexedProduct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Autocompletado por prefijo sobre nombres de producto y categorías.
+ *
+ * Cada nombre se inserta en un trie por cada sufijo que empieza en una palabra
+ * ("iphone 15 pro", "15 pro", "pro"), así un prefijo encuentra el texto aunque no
+ * empiece por la primera palabra. Los hijos de cada nodo se guardan en arrays
+ * ordenados y cada nodo precalcula sus {@link #MAX_SUGGESTIONS} mejores
+ * completaciones (unidades vendidas y luego rating): una consulta solo recorre
+ * los caracteres del prefijo y copia esa lista, sin tocar la base de datos.
+ *
+ * Se construye a partir de {@link ProductSearchIndex} y de las ventas por producto;
+ * los cambios de producto se aplican tras el commit recalculando solo los nodos del
+ * camino afectado, y las ventas se refrescan con una reconstrucción periódica.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSuggester {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Comparator<Suggestion> RANKING = Comparator
+            .comparingLong(Suggestion::sales).reversed()
+            .thenComparing(Comparator.comparingDouble(Suggestion::rating).reversed())
+            .thenComparing(Suggestion::text);
+
+    private final ProductSearchIndex productSearchIndex;
+    private final OrderItemRepository orderItemRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Protegidos por el lock; changedDuringRebuild solo existe mientras se reconstruye
+    private Catalog catalog = new Catalog(Map.of());
+    private Map<Long, IndexedProduct> changedDuringRebuild;
+
+    /**
+     * Construir el trie una vez cargado el índice de búsqueda
+     */
+    @Order(1)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Reconstruir el trie con los productos indexados y las ventas actuales.
+     * Los cambios que llegan mientras tanto se reaplican sobre el trie nuevo.
+     */
+    @Scheduled(initialDelayString = "${app.suggest.refresh-ms:900000}",
+               fixedDelayString = "${app.suggest.refresh-ms:900000}")
+    public void rebuild() {
+        if (!productSearchIndex.isReady()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Catalog rebuilt;
+        try {
+            rebuilt = Catalog.build(productSearchIndex.documents(), loadSales());
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild.values().forEach(rebuilt::apply);
+            changedDuringRebuild = null;
+            catalog = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Product suggester built: {} products, {} categories in {} ms",
+                rebuilt.products.size(), rebuilt.categories.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Actualizar las sugerencias de un producto creado, modificado o desactivado.
+     * Con transacción activa el cambio se aplica tras el commit.
+     */
+    public void onProductChanged(Product product) {
+        IndexedProduct document = IndexedProduct.of(product);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(document);
+                }
+            });
+        } else {
+            apply(document);
+        }
+    }
+
+    /**
+     * Mejores completaciones para {@code prefix}, como mucho {@link #MAX_SUGGESTIONS}
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String needle = needle(prefix);
+        if (needle.isEmpty()) {
+            return List.of();
+        }
+        int size = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+        lock.readLock().lock();
+        try {
+            Suggestion[] top = catalog.trie.complete(needle);
+            return List.of(Arrays.copyOf(top, Math.min(size, top.length)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(IndexedProduct document) {
+        lock.writeLock().lock();
+        try {
+            catalog.apply(document);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.put(document.id(), document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Map<Long, Long> loadSales() {
+        Map<Long, Long> sales = new HashMap<>();
+        for (Object[] row : orderItemRepository.sumQuantityGroupByProduct()) {
+            sales.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        return sales;
+    }
+
+    /**
+     * Prefijo normalizado igual que las claves: palabras separadas por un espacio,
+     * conservando el espacio final si el usuario ya terminó la última palabra
+     */
+    private static String needle(String prefix) {
+        String normalized = ProductSearchIndex.normalize(prefix);
+        List<String> words = words(normalized);
+        if (words.isEmpty()) {
+            return "";
+        }
+        String needle = String.join(" ", words);
+        boolean wordFinished = !normalized.isEmpty()
+                && TOKEN_SEPARATOR.matcher(normalized.substring(normalized.length() - 1)).matches();
+        return wordFinished ? needle + " " : needle;
+    }
+
+    private static List<String> keys(String text) {
+        List<String> words = words(ProductSearchIndex.normalize(text));
+        List<String> keys = new ArrayList<>(words.size());
+        for (int i = 0; i < words.size(); i++) {
+            keys.add(String.join(" ", words.subList(i, words.size())));
+        }
+        return keys;
+    }
+
+    private static List<String> words(String normalized) {
+        List<String> words = new ArrayList<>();
+        for (String word : TOKEN_SEPARATOR.split(normalized)) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Completación sugerida: un producto (con su ID) o una categoría
+     */
+    public record Suggestion(Type type, Long productId, String text, long sales, double rating) {
+
+        public enum Type { PRODUCT, CATEGORY }
+
+        String identity() {
+            return type == Type.PRODUCT ? "p:" + productId : "c:" + text;
+        }
+    }
+
+    /**
+     * Trie más los datos necesarios para actualizarlo de forma incremental
+     */
+    private static final class Catalog {
+
+        private final Trie trie = new Trie();
+        private final Map<Long, IndexedProduct> products = new HashMap<>();
+        private final Map<String, CategoryStats> categories = new HashMap<>();
+        private final Map<Long, Long> sales;
+
+        private Catalog(Map<Long, Long> sales) {
+            this.sales = sales;
+        }
+
+        static Catalog build(Collection<IndexedProduct> documents, Map<Long, Long> sales) {
+            Catalog catalog = new Catalog(sales);
+            for (IndexedProduct document : documents) {
+                catalog.products.put(document.id(), document);
+                Suggestion suggestion = catalog.productSuggestion(document);
+                keys(document.name()).forEach(key -> catalog.trie.add(key, suggestion, false));
+                if (document.category() != null) {
+                    catalog.categories.computeIfAbsent(document.category(), c -> new CategoryStats())
+                            .add(suggestion, 1);
+                }
+            }
+            catalog.categories.forEach((category, stats) -> keys(category)
+                    .forEach(key -> catalog.trie.add(key, stats.suggestion(category), false)));
+            catalog.trie.recomputeAll();
+            return catalog;
+        }
+
+        void apply(IndexedProduct document) {
+            IndexedProduct previous = products.remove(document.id());
+            if (previous != null) {
+                Suggestion old = productSuggestion(previous);
+                keys(previous.name()).forEach(key -> trie.remove(key, old.identity()));
+                updateCategory(previous.category(), old, -1);
+            }
+            if (document.active()) {
+                products.put(document.id(), document);
+                Suggestion suggestion = productSuggestion(document);
+                keys(document.name()).forEach(key -> trie.add(key, suggestion, true));
+                updateCategory(document.category(), suggestion, 1);
+            }
+        }
+
+        private void updateCategory(String category, Suggestion product, int delta) {
+            if (category == null) {
+                return;
+            }
+            CategoryStats stats = categories.computeIfAbsent(category, c -> new CategoryStats());
+            stats.add(product, delta);
+            Suggestion suggestion = stats.suggestion(category);
+            for (String key : keys(category)) {
+                if (stats.count > 0) {
+                    trie.add(key, suggestion, true);
+                } else {
+                    trie.remove(key, suggestion.identity());
+                }
+            }
+            if (stats.count == 0) {
+                categories.remove(category);
+            }
+        }
+
+        private Suggestion productSuggestion(IndexedProduct document) {
+            BigDecimal rating = document.rating();
+            return new Suggestion(Suggestion.Type.PRODUCT, document.id(), document.name(),
+                    sales.getOrDefault(document.id(), 0L), rating == null ? 0 : rating.doubleValue());
+        }
+    }
+
+    /**
+     * Ventas totales y rating medio de los productos activos de una categoría
+     */
+    private static final class CategoryStats {
+
+        private int count;
+        private long sales;
+        private double ratingSum;
+
+        void add(Suggestion product, int delta) {
+            count += delta;
+            sales += delta * product.sales();
+            ratingSum += delta * product.rating();
+        }
+
+        Suggestion suggestion(String category) {
+            return new Suggestion(Suggestion.Type.CATEGORY, null, category, sales,
+                    count == 0 ? 0 : ratingSum / count);
+        }
+    }
+
+    /**
+     * Trie con hijos en arrays ordenados por carácter y top-k precalculado por nodo
+     */
+    private static final class Trie {
+
+        private static final char[] NO_LABELS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Suggestion[] NO_SUGGESTIONS = new Suggestion[0];
+
+        private final Node root = new Node();
+
+        Suggestion[] complete(String prefix) {
+            Node node = root;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.child(prefix.charAt(i));
+            }
+            return node == null ? NO_SUGGESTIONS : node.top;
+        }
+
+        /**
+         * Añadir (o reemplazar por identidad) una sugerencia bajo {@code key}.
+         * Con {@code recompute} se actualiza el top-k de los nodos del camino.
+         */
+        void add(String key, Suggestion suggestion, boolean recompute) {
+            Node[] path = new Node[key.length() + 1];
+            path[0] = root;
+            for (int i = 0; i < key.length(); i++) {
+                path[i + 1] = path[i].childOrCreate(key.charAt(i));
+            }
+            Node terminal = path[key.length()];
+            terminal.own = with(without(terminal.own, suggestion.identity()), suggestion);
+            if (recompute) {
+                recomputePath(path);
+            }
+        }
+
+        void remove(String key, String identity) {
+            Node[] path = new Node[key.length() + 1];
+            path[0] = root;
+            for (int i = 0; i < key.length(); i++) {
+                path[i + 1] = path[i].child(key.charAt(i));
+                if (path[i + 1] == null) {
+                    return;
+                }
+            }
+            Node terminal = path[key.length()];
+            terminal.own = without(terminal.own, identity);
+            recomputePath(path);
+
+            // Podar las ramas que quedaron vacías
+            for (int i = key.length(); i > 0 && path[i].isEmpty(); i--) {
+                path[i - 1].removeChild(key.charAt(i - 1));
+            }
+        }
+
+        void recomputeAll() {
+            recomputeSubtree(root);
+        }
+
+        private static void recomputeSubtree(Node node) {
+            for (Node child : node.children) {
+                recomputeSubtree(child);
+            }
+            node.recompute();
+        }
+
+        private static void recomputePath(Node[] path) {
+            for (int i = path.length - 1; i >= 0; i--) {
+                path[i].recompute();
+            }
+        }
+
+        private static Suggestion[] with(Suggestion[] suggestions, Suggestion suggestion) {
+            Suggestion[] result = Arrays.copyOf(suggestions, suggestions.length + 1);
+            result[suggestions.length] = suggestion;
+            return result;
+        }
+
+        private static Suggestion[] without(Suggestion[] suggestions, String identity) {
+            return Arrays.stream(suggestions)
+                    .filter(suggestion -> !suggestion.identity().equals(identity))
+                    .toArray(Suggestion[]::new);
+        }
+
+        private static final class Node {
+
+            private char[] labels = NO_LABELS;
+            private Node[] children = NO_CHILDREN;
+            private Suggestion[] own = NO_SUGGESTIONS;
+            private Suggestion[] top = NO_SUGGESTIONS;
+
+            Node child(char label) {
+                int index = Arrays.binarySearch(labels, label);
+                return index >= 0 ? children[index] : null;
+            }
+
+            Node childOrCreate(char label) {
+                int index = Arrays.binarySearch(labels, label);
+                if (index >= 0) {
+                    return children[index];
+                }
+                int at = -index - 1;
+                Node child = new Node();
+                char[] newLabels = new char[labels.length + 1];
+                Node[] newChildren = new Node[children.length + 1];
+                System.arraycopy(labels, 0, newLabels, 0, at);
+                System.arraycopy(children, 0, newChildren, 0, at);
+                newLabels[at] = label;
+                newChildren[at] = child;
+                System.arraycopy(labels, at, newLabels, at + 1, labels.length - at);
+                System.arraycopy(children, at, newChildren, at + 1, children.length - at);
+                labels = newLabels;
+                children = newChildren;
+                return child;
+            }
+
+            void removeChild(char label) {
+                int index = Arrays.binarySearch(labels, label);
+                if (index < 0) {
+                    return;
+                }
+                char[] newLabels = new char[labels.length - 1];
+                Node[] newChildren = new Node[children.length - 1];
+                System.arraycopy(labels, 0, newLabels, 0, index);
+                System.arraycopy(children, 0, newChildren, 0, index);
+                System.arraycopy(labels, index + 1, newLabels, index, labels.length - index - 1);
+                System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+                labels = newLabels;
+                children = newChildren;
+            }
+
+            boolean isEmpty() {
+                return own.length == 0 && children.length == 0;
+            }
+
+            /**
+             * El top-k de un nodo sale de sus sugerencias propias y del top-k de sus hijos;
+             * un mismo producto puede llegar por varias claves y se cuenta una vez
+             */
+            void recompute() {
+                List<Suggestion> candidates = new ArrayList<>(Arrays.asList(own));
+                for (Node child : children) {
+                    candidates.addAll(Arrays.asList(child.top));
+                }
+                candidates.sort(RANKING);
+
+                List<Suggestion> best = new ArrayList<>(MAX_SUGGESTIONS);
+                Set<String> seen = new HashSet<>();
+                for (Suggestion candidate : candidates) {
+                    if (best.size() == MAX_SUGGESTIONS) {
+                        break;
+                    }
+                    if (seen.add(candidate.identity())) {
+                        best.add(candidate);
+                    }
+                }
+                top = best.toArray(NO_SUGGESTIONS);
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.ecommercepimo.ecommerce.service;
+
+import com.ecommercepimo.ecommerce.dto.OrderCreateRequest;
+import com.ecommercepimo.ecommerce.dto.OrderResponse;
+import com.ecommercepimo.ecommerce.entity.Product;
+import com.ecommercepimo.ecommerce.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Ventas flash de productos destacados.
+ *
+ * Al iniciar una venta se acuñan tantos tokens como unidades en venta, en una cola
+ * sin bloqueos. Cada checkout que incluye un producto en venta toma sus tokens
+ * antes de tocar la base de datos: si no quedan, se rechaza al instante. Los que
+ * tienen tokens pasan por una sala de espera (semáforo justo) que limita cuántos
+ * checkouts de venta flash ejecutan a la vez, al ritmo que el pool de conexiones
+ * puede absorber; quien no entra antes de {@code admission-timeout-ms} recibe 429.
+ *
+ * Los tokens solo filtran la carga: el UPDATE condicional de stock sigue siendo
+ * la garantía de no sobrevender. Si el checkout falla, sus tokens vuelven a la cola;
+ * si la orden se cancela o caduca después, también. Cada venta recuerda las órdenes
+ * que admitió y cuántos tokens tomó cada una, y los tokens solo vuelven a la venta
+ * de la que salieron: tras reiniciar o terminar la venta se descartan, y la cola
+ * nunca supera las unidades asignadas.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FlashSaleService {
+
+    private final ProductRepository productRepository;
+
+    private final Map<Long, Sale> salesByProduct = new ConcurrentHashMap<>();
+
+    @Value("${app.flash-sale.max-concurrent-checkouts:16}")
+    private int maxConcurrentCheckouts;
+
+    @Value("${app.flash-sale.admission-timeout-ms:2000}")
+    private long admissionTimeoutMs;
+
+    private Semaphore admission;
+
+    @PostConstruct
+    void init() {
+        admission = new Semaphore(maxConcurrentCheckouts, true);
+    }
+
+    /**
+     * Iniciar (o reiniciar) la venta flash de un producto destacado
+     */
+    public void startSale(Long productId, int units) {
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
+
+        if (!Boolean.TRUE.equals(product.getActive()) || !Boolean.TRUE.equals(product.getFeatured())) {
+            throw new RuntimeException("Solo productos activos y destacados pueden tener venta flash");
+        }
+        if (units <= 0 || units > product.getStock()) {
+            throw new RuntimeException("Unidades inválidas para la venta flash (stock: " + product.getStock() + ")");
+        }
+
+        salesByProduct.put(productId, new Sale(productId, units));
+        log.info("Flash sale started for product {} with {} units", productId, units);
+    }
+
+    /**
+     * Terminar la venta flash de un producto
+     */
+    public void endSale(Long productId) {
+        if (salesByProduct.remove(productId) != null) {
+            log.info("Flash sale ended for product {}", productId);
+        }
+    }
+
+    /**
+     * Ejecutar un checkout pasando por la admisión de venta flash si incluye
+     * productos en venta; el resto de checkouts no se ven afectados
+     */
+    public OrderResponse admit(OrderCreateRequest request, Supplier<OrderResponse> checkout) {
+        if (salesByProduct.isEmpty()) {
+            return checkout.get();
+        }
+
+        Map<Sale, Integer> taken = takeTokens(OrderService.quantitiesByProduct(request));
+        if (taken.isEmpty()) {
+            return checkout.get();
+        }
+
+        boolean admitted;
+        try {
+            admitted = admission.tryAcquire(admissionTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            returnTokens(taken);
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Demasiadas solicitudes para la venta flash, intente nuevamente");
+        }
+
+        try {
+            OrderResponse order = checkout.get();
+            taken.forEach((sale, count) -> sale.admittedOrders.put(order.getId(), count));
+            return order;
+        } catch (RuntimeException ex) {
+            returnTokens(taken);
+            throw ex;
+        } finally {
+            admission.release();
+        }
+    }
+
+    /**
+     * Devolver los tokens de órdenes canceladas o caducadas; con transacción activa,
+     * al confirmarse. Las órdenes que no entraron por una venta en curso se ignoran.
+     */
+    public void onOrdersCancelled(Collection<Long> orderIds) {
+        if (salesByProduct.isEmpty() || orderIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(orderIds);
+        Runnable giveBack = () -> salesByProduct.values().forEach(sale -> ids.forEach(orderId -> {
+            Integer count = sale.admittedOrders.remove(orderId);
+            if (count != null) {
+                returnTokens(Map.of(sale, count));
+            }
+        }));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    giveBack.run();
+                }
+            });
+        } else {
+            giveBack.run();
+        }
+    }
+
+    private Map<Sale, Integer> takeTokens(Map<Long, Integer> quantities) {
+        Map<Sale, Integer> taken = new LinkedHashMap<>();
+        for (Map.Entry<Long, Integer> line : new TreeMap<>(quantities).entrySet()) {
+            Sale sale = salesByProduct.get(line.getKey());
+            if (sale == null) {
+                continue;
+            }
+            int count = 0;
+            while (count < line.getValue() && sale.tokens.poll() != null) {
+                count++;
+            }
+            if (count > 0) {
+                taken.put(sale, count);
+            }
+            if (count < line.getValue()) {
+                returnTokens(taken);
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Producto agotado en la venta flash: " + line.getKey());
+            }
+        }
+        return taken;
+    }
+
+    private void returnTokens(Map<Sale, Integer> taken) {
+        taken.forEach((sale, count) -> {
+            // Si la venta terminó o se reinició mientras tanto los tokens se descartan
+            if (salesByProduct.get(sale.productId) == sale) {
+                for (int i = 0; i < count; i++) {
+                    sale.tokens.add(i);
+                }
+            }
+        });
+    }
+
+    /**
+     * Una venta flash en curso: cada inicio crea una nueva, así que los tokens de
+     * una anterior nunca vuelven a esta
+     */
+    private static final class Sale {
+
+        private final Long productId;
+        private final Queue<Integer> tokens = new ConcurrentLinkedQueue<>();
+        // Órdenes admitidas con tokens de esta venta; como mucho tantas como unidades
+        private final Map<Long, Integer> admittedOrders = new ConcurrentHashMap<>();
+
+        Sale(Long productId, int units) {
+            this.productId = productId;
+            for (int i = 0; i < units; i++) {
+                tokens.add(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.ecommercepimo.ecommerce.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Rueda de temporización con hash (hashed timing wheel).
+ *
+ * Cada elemento cae en la ranura de su tick de vencimiento módulo el tamaño de la
+ * rueda; avanzar un tick solo recorre una ranura, así el coste no depende de
+ * cuántos elementos haya pendientes. Los que vencen en una vuelta posterior se
+ * quedan en su ranura hasta que la rueda vuelve a pasar por ella.
+ *
+ * {@link #schedule} puede llamarse desde cualquier hilo: los elementos nuevos
+ * entran en una cola concurrente y se reparten en las ranuras al avanzar.
+ * {@link #advance} debe llamarse siempre desde un único hilo.
+ */
+final class HashedTimingWheel<T> {
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final int mask;
+    private final List<ArrayDeque<Timeout<T>>> buckets;
+    private final Queue<Timeout<T>> pending = new ConcurrentLinkedQueue<>();
+
+    // Siguiente tick a procesar; solo lo toca el hilo que avanza la rueda
+    private long cursor;
+
+    HashedTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        int size = Integer.highestOneBit(Math.max(2, wheelSize) * 2 - 1);
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.mask = size - 1;
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            buckets.add(new ArrayDeque<>());
+        }
+    }
+
+    void schedule(T item, long deadlineMillis) {
+        pending.add(new Timeout<>(item, deadlineMillis));
+    }
+
+    /**
+     * Avanzar la rueda hasta {@code nowMillis} y devolver los elementos vencidos
+     */
+    List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        long target = (nowMillis - startMillis) / tickMillis;
+
+        Timeout<T> timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.deadlineMillis <= nowMillis) {
+                expired.add(timeout.item);
+            } else {
+                // Redondeo hacia arriba: la ranura se procesa cuando el plazo ya pasó
+                long tick = (timeout.deadlineMillis - startMillis + tickMillis - 1) / tickMillis;
+                buckets.get((int) (Math.max(tick, cursor) & mask)).add(timeout);
+            }
+        }
+
+        // Tras una pausa larga basta con recorrer cada ranura una vez
+        cursor = Math.max(cursor, target - mask);
+        for (; cursor <= target; cursor++) {
+            Iterator<Timeout<T>> it = buckets.get((int) (cursor & mask)).iterator();
+            while (it.hasNext()) {
+                Timeout<T> candidate = it.next();
+                if (candidate.deadlineMillis <= nowMillis) {
+                    expired.add(candidate.item);
+                    it.remove();
+                }
+            }
+        }
+        return expired;
+    }
+
+    private record Timeout<T>(T item, long deadlineMillis) {
+    }
+}
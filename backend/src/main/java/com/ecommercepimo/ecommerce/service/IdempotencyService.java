@@ -0,0 +1,190 @@
+package com.ecommercepimo.ecommerce.service;
+
+import com.ecommercepimo.ecommerce.dto.OrderResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Soporte de {@code Idempotency-Key} para la creación de órdenes.
+ *
+ * En memoria se guarda, por usuario y clave, el future de la primera petición: los
+ * duplicados que llegan mientras está en curso esperan ese future y los que llegan
+ * después reciben la misma {@link OrderResponse}, sin volver a reservar stock. El
+ * almacén está acotado ({@code max-entries}, desalojo FIFO) y las entradas caducan
+ * a los {@code ttl-seconds}. Las peticiones fallidas no se guardan.
+ *
+ * Como respaldo durable, la tabla {@code idempotency_keys} registra la orden creada
+ * en la misma transacción que la orden; sirve para reintentos que llegan después de
+ * la caducidad en memoria, a otra instancia o tras un reinicio.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyService {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO idempotency_keys (user_email, idempotency_key, order_id) VALUES (?, ?, ?) " +
+            "ON CONFLICT DO NOTHING";
+
+    private static final String FIND_SQL =
+            "SELECT order_id FROM idempotency_keys WHERE user_email = ? AND idempotency_key = ?";
+
+    private static final String DELETE_SQL =
+            "DELETE FROM idempotency_keys WHERE user_email = ? AND idempotency_key = ?";
+
+    private static final String PURGE_SQL =
+            "DELETE FROM idempotency_keys WHERE created_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Entradas, no claves: una clave fallida y reintentada vuelve a la cola con otra entrada
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    @Value("${app.idempotency.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${app.idempotency.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${app.idempotency.retention-hours:24}")
+    private long retentionHours;
+
+    /**
+     * Ejecutar la creación de una orden una sola vez por usuario y clave.
+     * {@code loader} obtiene la respuesta de una orden ya registrada en la tabla.
+     */
+    public OrderResponse execute(String userEmail, String idempotencyKey,
+                                 Supplier<OrderResponse> action,
+                                 Function<Long, OrderResponse> loader) {
+        String cacheKey = userEmail + "|" + idempotencyKey;
+        Entry entry = new Entry(cacheKey, new CompletableFuture<>(), System.currentTimeMillis() + ttlSeconds * 1000);
+
+        Entry existing;
+        while ((existing = entries.putIfAbsent(cacheKey, entry)) != null && existing.isExpired()) {
+            entries.remove(cacheKey, existing);
+        }
+        if (existing != null) {
+            log.debug("Duplicate request for idempotency key {} of user {}", idempotencyKey, userEmail);
+            return await(existing.result);
+        }
+        insertionOrder.add(entry);
+        evictOverflow();
+
+        try {
+            OrderResponse response;
+            try {
+                response = findOrderId(userEmail, idempotencyKey).map(loader).orElseGet(action);
+            } catch (DuplicateKeyException ex) {
+                // Otra instancia confirmó la misma clave mientras esta creaba la orden
+                response = findOrderId(userEmail, idempotencyKey).map(loader).orElseThrow(() -> ex);
+            }
+            entry.result.complete(response);
+            return response;
+        } catch (RuntimeException ex) {
+            entries.remove(cacheKey, entry);
+            entry.result.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Registrar la clave de la orden, dentro de la transacción de la orden.
+     * Devuelve false si la clave ya estaba registrada.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean record(String userEmail, String idempotencyKey, Long orderId) {
+        return jdbcTemplate.update(INSERT_SQL, userEmail, idempotencyKey, orderId) > 0;
+    }
+
+    /**
+     * Quitar una clave registrada cuya orden finalmente no se crea
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void remove(String userEmail, String idempotencyKey) {
+        jdbcTemplate.update(DELETE_SQL, userEmail, idempotencyKey);
+    }
+
+    /**
+     * Eliminar entradas caducadas en memoria y claves antiguas de la tabla
+     */
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        entries.values().removeIf(entry -> entry.isExpired() && entry.result.isDone());
+        insertionOrder.removeIf(entry -> entries.get(entry.cacheKey()) != entry);
+
+        int deleted = jdbcTemplate.update(PURGE_SQL, Timestamp.valueOf(LocalDateTime.now().minusHours(retentionHours)));
+        if (deleted > 0) {
+            log.debug("Purged {} idempotency keys", deleted);
+        }
+    }
+
+    private Optional<Long> findOrderId(String userEmail, String idempotencyKey) {
+        List<Long> orderIds = jdbcTemplate.queryForList(FIND_SQL, Long.class, userEmail, idempotencyKey);
+        return orderIds.stream().findFirst();
+    }
+
+    private void evictOverflow() {
+        // Las peticiones en curso no se desalojan: vuelven al final de la cola para poder
+        // desalojarlas cuando terminen
+        List<Entry> inFlight = new ArrayList<>();
+        while (entries.size() > maxEntries) {
+            Entry oldest = insertionOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            // Ya eliminada (fallo o purga) o sustituida por un reintento, que tiene su propio sitio
+            if (entries.get(oldest.cacheKey()) != oldest) {
+                continue;
+            }
+            if (oldest.result.isDone()) {
+                entries.remove(oldest.cacheKey(), oldest);
+            } else {
+                inFlight.add(oldest);
+            }
+        }
+        insertionOrder.addAll(inFlight);
+    }
+
+    private OrderResponse await(CompletableFuture<OrderResponse> result) {
+        try {
+            return result.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Error procesando la orden", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Espera de la orden interrumpida", ex);
+        }
+    }
+
+    private record Entry(String cacheKey, CompletableFuture<OrderResponse> result, long expiresAt) {
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+}
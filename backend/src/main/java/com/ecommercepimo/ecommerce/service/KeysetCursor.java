@@ -0,0 +1,113 @@
+package com.ecommercepimo.ecommerce.service;
+
+import com.ecommercepimo.ecommerce.dto.CursorPage;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cursores opacos para paginación por keyset.
+ *
+ * El cursor codifica en Base64 (URL-safe) los valores de la clave de orden y del ID
+ * de la última fila devuelta; la siguiente página se pide con
+ * {@code WHERE (clave, id) > (:clave, :id)}, que con un índice compuesto cuesta lo
+ * mismo en la página 1 que en la 10.000 y no necesita {@code count(*)}.
+ */
+public final class KeysetCursor {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Tipos de las propiedades que pueden formar parte de un cursor
+    private static final Map<Class<?>, Function<String, ?>> PARSERS = Map.of(
+            Long.class, Long::valueOf,
+            String.class, Function.identity(),
+            BigDecimal.class, BigDecimal::new,
+            LocalDateTime.class, LocalDateTime::parse);
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * Orden por {@code property} con el ID como desempate, ambos en la misma dirección
+     * para que el índice compuesto pueda recorrerse en cualquiera de los dos sentidos
+     */
+    public static Sort sort(String property, Sort.Direction direction) {
+        return "id".equals(property) ? Sort.by(direction, "id") : Sort.by(direction, property, "id");
+    }
+
+    public static int limit(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Posición a partir de un cursor; sin cursor, el inicio. {@code types} indica el
+     * tipo de cada propiedad del orden y el cursor debe traer exactamente esas claves.
+     */
+    public static ScrollPosition decode(String cursor, Sort sort, Map<String, Class<?>> types) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+
+        Set<String> expected = sort.stream().map(Sort.Order::getProperty).collect(Collectors.toSet());
+        Map<String, Object> keys = new LinkedHashMap<>();
+        try {
+            String decoded = new String(DECODER.decode(cursor), StandardCharsets.UTF_8);
+            for (String pair : decoded.split("&")) {
+                int separator = pair.indexOf('=');
+                String property = URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8);
+                String value = URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+                keys.put(property, PARSERS.get(types.get(property)).apply(value));
+            }
+        } catch (RuntimeException ex) {
+            throw new RuntimeException("Cursor inválido");
+        }
+        if (!keys.keySet().equals(expected)) {
+            throw new RuntimeException("El cursor no corresponde al orden solicitado");
+        }
+        return ScrollPosition.forward(keys);
+    }
+
+    /**
+     * Página sin conteo total con el cursor de la siguiente, si la hay
+     */
+    public static <T, R> CursorPage<R> page(Window<T> window, Function<T, R> mapper) {
+        List<R> content = window.getContent().stream().map(mapper).toList();
+        String nextCursor = null;
+        if (window.hasNext() && !window.isEmpty()
+                && window.positionAt(window.size() - 1) instanceof KeysetScrollPosition position) {
+            nextCursor = encode(position.getKeys());
+        }
+        return CursorPage.<R>builder()
+                .content(content)
+                .size(content.size())
+                .hasNext(nextCursor != null)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private static String encode(Map<String, ?> keys) {
+        StringJoiner joiner = new StringJoiner("&");
+        keys.forEach((property, value) -> joiner.add(
+                URLEncoder.encode(property, StandardCharsets.UTF_8) + "="
+                        + URLEncoder.encode(String.valueOf(value), StandardCharsets.UTF_8)));
+        return ENCODER.encodeToString(joiner.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,154 @@
+package com.ecommercepimo.ecommerce.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caducidad de las reservas de stock de órdenes pendientes.
+ *
+ * Cada orden creada en estado PENDING se registra (tras el commit) en una
+ * {@link HashedTimingWheel}; un único tick periódico recoge las que superaron
+ * {@code ttl-minutes} y las cancela por lotes, devolviendo su stock con un solo
+ * batch de UPDATE por lote, junto con los tokens de venta flash que tomaron. Las
+ * órdenes que dejaron de estar pendientes no se quitan de la rueda: al vencer
+ * simplemente no cumplen la condición de estado.
+ *
+ * La rueda vive en memoria; al arrancar se reconstruye con las órdenes pendientes
+ * a partir de {@code orders.created_at}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderExpiryService {
+
+    private static final String EXPIRE_SQL =
+            "WITH expired AS (" +
+            "  UPDATE orders SET status = 'CANCELLED', updated_at = CURRENT_TIMESTAMP " +
+            "  WHERE id = ANY(?) AND status = 'PENDING' RETURNING id" +
+            ") " +
+            "SELECT e.id AS order_id, oi.product_id, oi.quantity " +
+            "FROM expired e JOIN order_items oi ON oi.order_id = e.id";
+
+    private static final String PENDING_SQL =
+            "SELECT id, created_at FROM orders WHERE status = 'PENDING'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StockReservationService stockReservationService;
+    private final FlashSaleService flashSaleService;
+
+    @Value("${app.order-expiry.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.order-expiry.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    @Value("${app.order-expiry.tick-ms:1000}")
+    private long tickMillis;
+
+    @Value("${app.order-expiry.wheel-size:512}")
+    private int wheelSize;
+
+    @Value("${app.order-expiry.batch-size:500}")
+    private int batchSize;
+
+    private HashedTimingWheel<Long> wheel;
+
+    @PostConstruct
+    void init() {
+        wheel = new HashedTimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+    }
+
+    /**
+     * Registrar una orden pendiente recién creada; si hay transacción activa, al confirmarse
+     */
+    public void register(Long orderId) {
+        if (!enabled) {
+            return;
+        }
+        Runnable schedule = () -> wheel.schedule(orderId,
+                System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(ttlMinutes));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    schedule.run();
+                }
+            });
+        } else {
+            schedule.run();
+        }
+    }
+
+    /**
+     * Reconstruir la rueda con las órdenes pendientes existentes
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long ttl = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        int[] count = {0};
+        jdbcTemplate.query(PENDING_SQL, rs -> {
+            wheel.schedule(rs.getLong("id"), rs.getTimestamp("created_at").getTime() + ttl);
+            count[0]++;
+        });
+        log.info("Order expiry wheel rebuilt with {} pending orders (ttl {} min)", count[0], ttlMinutes);
+    }
+
+    /**
+     * Avanzar la rueda y cancelar por lotes las órdenes vencidas
+     */
+    @Scheduled(fixedDelayString = "${app.order-expiry.tick-ms:1000}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        List<Long> expired = wheel.advance(System.currentTimeMillis());
+        for (int from = 0; from < expired.size(); from += batchSize) {
+            List<Long> batch = expired.subList(from, Math.min(from + batchSize, expired.size()));
+            try {
+                expire(batch);
+            } catch (RuntimeException ex) {
+                // Se reintentan en el siguiente tick
+                log.error("Failed to expire {} pending orders", batch.size(), ex);
+                long retryAt = System.currentTimeMillis() + tickMillis;
+                batch.forEach(orderId -> wheel.schedule(orderId, retryAt));
+            }
+        }
+    }
+
+    private void expire(List<Long> orderIds) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<Long, Integer> quantities = new TreeMap<>();
+            Set<Long> cancelled = new HashSet<>();
+            jdbcTemplate.query(EXPIRE_SQL, rs -> {
+                cancelled.add(rs.getLong("order_id"));
+                quantities.merge(rs.getLong("product_id"), rs.getInt("quantity"), Integer::sum);
+            }, (Object) orderIds.toArray(new Long[0]));
+            if (!quantities.isEmpty()) {
+                stockReservationService.release(quantities);
+                flashSaleService.onOrdersCancelled(cancelled);
+            }
+        });
+        log.debug("Processed {} expired pending orders", orderIds.size());
+    }
+}
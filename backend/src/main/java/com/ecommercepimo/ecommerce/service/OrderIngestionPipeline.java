@@ -0,0 +1,423 @@
+package com.ecommercepimo.ecommerce.service;
+
+import com.ecommercepimo.ecommerce.dto.OrderCreateRequest;
+import com.ecommercepimo.ecommerce.dto.OrderResponse;
+import com.ecommercepimo.ecommerce.entity.Order;
+import com.ecommercepimo.ecommerce.entity.OrderItem;
+import com.ecommercepimo.ecommerce.entity.Product;
+import com.ecommercepimo.ecommerce.entity.User;
+import com.ecommercepimo.ecommerce.mapper.OrderMapper;
+import com.ecommercepimo.ecommerce.repository.ProductRepository;
+import com.ecommercepimo.ecommerce.repository.UserRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Ingesta de órdenes por lotes (group commit).
+ *
+ * Los requests de {@code POST /api/orders} ya validados se encolan y un único hilo
+ * escritor los confirma en micro-lotes (hasta {@code batch-size} órdenes o
+ * {@code max-wait-ms}), con una transacción por lote e inserts JDBC en batch para
+ * {@code orders} y {@code order_items}. El coste de cada commit se reparte entre
+ * todas las órdenes del lote.
+ *
+ * El stock se reserva orden por orden: una orden sin stock se rechaza sola y el
+ * resto del lote continúa. Las Idempotency-Key se registran antes de reservar: si
+ * otra instancia ya confirmó la misma clave, esa orden se rechaza con
+ * {@link DuplicateKeyException} y el reintento recupera la orden existente.
+ *
+ * El future de cada llamador se completa tras el commit. Si el escritor no responde
+ * a tiempo el llamador recibe 503 (con Idempotency-Key puede reintentar sin duplicar
+ * la orden), y al parar se rechazan las que sigan en cola.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderIngestionPipeline {
+
+    private static final String INSERT_ORDER_SQL =
+            "INSERT INTO orders (id, order_number, user_id, status, total_amount, shipping_address, " +
+            "payment_method, payment_status, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Cada nextval() reserva un bloque de IDs que nadie más usa (V3); basta con su primer valor
+    private static final String NEXT_ORDER_IDS_SQL =
+            "SELECT nextval('orders_id_seq') FROM generate_series(1, ?)";
+
+    private static final String DEFER_IDEMPOTENCY_FK_SQL =
+            "SET CONSTRAINTS idempotency_keys_order_id_fkey DEFERRED";
+
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO order_items (order_id, product_id, quantity, unit_price, subtotal) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final StockReservationService stockReservationService;
+    private final OrderMapper orderMapper;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final IdempotencyService idempotencyService;
+    private final OrderExpiryService orderExpiryService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.order-ingestion.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.order-ingestion.batch-size:64}")
+    private int batchSize;
+
+    @Value("${app.order-ingestion.max-wait-ms:5}")
+    private long maxWaitMs;
+
+    @Value("${app.order-ingestion.queue-capacity:4096}")
+    private int queueCapacity;
+
+    @Value("${app.order-ingestion.wait-timeout-ms:10000}")
+    private long waitTimeoutMs;
+
+    private BlockingQueue<OrderCommand> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    private Timer batchLatency;
+    private DistributionSummary batchSizes;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        batchLatency = Timer.builder("orders.ingestion.batch.latency")
+                .description("Tiempo de escritura y commit de cada lote de órdenes")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("orders.ingestion.batch.size")
+                .description("Órdenes por lote confirmado")
+                .register(meterRegistry);
+        Gauge.builder("orders.ingestion.queue.size", queue, BlockingQueue::size)
+                .register(meterRegistry);
+
+        running = true;
+        writer = new Thread(this::drainLoop, "order-ingestion");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Order ingestion pipeline started (batch size {}, max wait {} ms)", batchSize, maxWaitMs);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (writer == null) {
+            return;
+        }
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (writer.isAlive()) {
+            writer.interrupt();
+        }
+        // Lo que el escritor no llegó a confirmar no se confirmará: nadie debe quedarse esperando
+        List<OrderCommand> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        pending.forEach(command -> command.result.completeExceptionally(unavailable()));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Encolar una orden; el future se completa cuando su lote queda confirmado
+     */
+    public CompletableFuture<OrderResponse> submit(
+            String userEmail, OrderCreateRequest request, String idempotencyKey) {
+        OrderCommand command = new OrderCommand(userEmail, request, idempotencyKey,
+                OrderService.quantitiesByProduct(request));
+        if (!running || !queue.offer(command)) {
+            throw unavailable();
+        }
+        // stop() pudo vaciar la cola justo antes del offer
+        if (!running && queue.remove(command)) {
+            throw unavailable();
+        }
+        return command.result;
+    }
+
+    /**
+     * Encolar una orden y esperar a que su lote se confirme
+     */
+    public OrderResponse submitAndWait(String userEmail, OrderCreateRequest request, String idempotencyKey) {
+        try {
+            return submit(userEmail, request, idempotencyKey).get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            // La orden puede confirmarse todavía; el reintento con la misma Idempotency-Key la encuentra
+            log.warn("Order for {} not committed within {} ms", userEmail, waitTimeoutMs);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "El registro de la orden está tardando más de lo esperado, intente nuevamente");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("No se pudo registrar la orden", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Registro de la orden interrumpido", ex);
+        }
+    }
+
+    private static ResponseStatusException unavailable() {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "No se pueden aceptar más órdenes en este momento, intente nuevamente");
+    }
+
+    private void drainLoop() {
+        List<OrderCommand> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                OrderCommand first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - batch.size());
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                while (batch.size() < batchSize) {
+                    OrderCommand next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                commit(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                batch.forEach(command -> command.result.completeExceptionally(
+                        new RuntimeException("Registro de la orden interrumpido")));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<OrderCommand> batch) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(batch));
+        } catch (RuntimeException ex) {
+            log.error("Order batch of {} failed", batch.size(), ex);
+            batch.forEach(command -> command.result.completeExceptionally(ex));
+            return;
+        } finally {
+            batchLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchSizes.record(batch.size());
+        }
+
+        for (OrderCommand command : batch) {
+            if (command.failure != null) {
+                command.result.completeExceptionally(command.failure);
+            } else {
+                command.result.complete(command.response);
+            }
+        }
+        log.debug("Committed order batch of {}", batch.size());
+    }
+
+    private void write(List<OrderCommand> batch) {
+        Map<String, User> users = userRepository.findByEmailIn(batch.stream()
+                        .map(command -> command.userEmail)
+                        .collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(User::getEmail, Function.identity()));
+
+        // Bloquear los productos del lote en orden de ID antes de descontar stock
+        Map<Long, Product> products = productRepository.findAllByIdForUpdate(batch.stream()
+                        .flatMap(command -> command.quantities.keySet().stream())
+                        .collect(Collectors.toCollection(TreeSet::new))).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        List<Long> orderIds = jdbcTemplate.queryForList(NEXT_ORDER_IDS_SQL, Long.class, batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).orderId = orderIds.get(i);
+        }
+        recordIdempotencyKeys(batch);
+
+        List<Order> orders = new ArrayList<>();
+        List<OrderCommand> accepted = new ArrayList<>();
+        for (OrderCommand command : batch) {
+            if (command.failure != null) {
+                continue;
+            }
+            User user = users.get(command.userEmail);
+            command.failure = reserve(command, user, products).orElse(null);
+            if (command.failure != null) {
+                if (command.idempotencyKey != null) {
+                    idempotencyService.remove(command.userEmail, command.idempotencyKey);
+                }
+                continue;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            Order order = OrderService.newOrder(user, command.request, products, orderNumberGenerator.next());
+            order.setId(command.orderId);
+            order.setCreatedAt(now);
+            order.setUpdatedAt(now);
+            orders.add(order);
+            accepted.add(command);
+        }
+        if (orders.isEmpty()) {
+            return;
+        }
+
+        insertOrders(orders);
+        insertOrderItems(orders.stream().flatMap(order -> order.getOrderItems().stream()).toList());
+
+        for (int i = 0; i < orders.size(); i++) {
+            orderExpiryService.register(orders.get(i).getId());
+            accepted.get(i).response = orderMapper.toOrderResponse(orders.get(i));
+        }
+    }
+
+    /**
+     * Registrar las claves del lote antes de reservar stock. Si otra instancia tiene
+     * la misma clave sin confirmar, el INSERT espera a su commit; se registran en un
+     * orden fijo para que dos lotes con claves cruzadas no se bloqueen mutuamente.
+     */
+    private void recordIdempotencyKeys(List<OrderCommand> batch) {
+        if (batch.stream().noneMatch(command -> command.idempotencyKey != null)) {
+            return;
+        }
+        // La orden de cada clave se inserta más adelante en esta misma transacción
+        jdbcTemplate.execute(DEFER_IDEMPOTENCY_FK_SQL);
+        batch.stream()
+                .filter(command -> command.idempotencyKey != null)
+                .sorted(Comparator.comparing((OrderCommand command) -> command.userEmail)
+                        .thenComparing(command -> command.idempotencyKey))
+                .forEach(command -> {
+                    if (!idempotencyService.record(command.userEmail, command.idempotencyKey, command.orderId)) {
+                        log.warn("Idempotency key {} of user {} was already recorded",
+                                command.idempotencyKey, command.userEmail);
+                        command.failure = new DuplicateKeyException(
+                                "Idempotency-Key ya utilizada: " + command.idempotencyKey);
+                    }
+                });
+    }
+
+    private Optional<RuntimeException> reserve(OrderCommand command, User user, Map<Long, Product> products) {
+        if (user == null) {
+            return Optional.of(new RuntimeException("Usuario no encontrado"));
+        }
+        for (Long productId : command.quantities.keySet()) {
+            if (!products.containsKey(productId)) {
+                return Optional.of(new RuntimeException("Producto no encontrado: " + productId));
+            }
+        }
+        return stockReservationService.tryReserve(command.quantities);
+    }
+
+    private void insertOrders(List<Order> orders) {
+        jdbcTemplate.batchUpdate(INSERT_ORDER_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Order order = orders.get(i);
+                ps.setLong(1, order.getId());
+                ps.setString(2, order.getOrderNumber());
+                ps.setLong(3, order.getUser().getId());
+                ps.setString(4, order.getStatus().name());
+                ps.setBigDecimal(5, order.getTotalAmount());
+                ps.setString(6, order.getShippingAddress());
+                ps.setString(7, order.getPaymentMethod());
+                ps.setString(8, order.getPaymentStatus().name());
+                ps.setTimestamp(9, Timestamp.valueOf(order.getCreatedAt()));
+                ps.setTimestamp(10, Timestamp.valueOf(order.getUpdatedAt()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return orders.size();
+            }
+        });
+    }
+
+    private void insertOrderItems(List<OrderItem> items) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_ITEM_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        OrderItem item = items.get(i);
+                        ps.setLong(1, item.getOrder().getId());
+                        ps.setLong(2, item.getProduct().getId());
+                        ps.setInt(3, item.getQuantity());
+                        ps.setBigDecimal(4, item.getUnitPrice());
+                        ps.setBigDecimal(5, item.getSubtotal());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return items.size();
+                    }
+                }, keys);
+
+        List<Map<String, Object>> generated = keys.getKeyList();
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).setId(((Number) generated.get(i).get("id")).longValue());
+        }
+    }
+
+    private static final class OrderCommand {
+        private final String userEmail;
+        private final OrderCreateRequest request;
+        private final String idempotencyKey;
+        private final Map<Long, Integer> quantities;
+        private final CompletableFuture<OrderResponse> result = new CompletableFuture<>();
+
+        // Solo los modifica el hilo escritor
+        private Long orderId;
+        private OrderResponse response;
+        private RuntimeException failure;
+
+        private OrderCommand(String userEmail, OrderCreateRequest request, String idempotencyKey,
+                             Map<Long, Integer> quantities) {
+            this.userEmail = userEmail;
+            this.request = request;
+            this.idempotencyKey = idempotencyKey;
+            this.quantities = quantities;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.ecommercepimo.ecommerce.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generador de números de orden estilo Snowflake.
+ *
+ * Cada número es un entero de 63 bits: 41 bits de milisegundos desde {@link #EPOCH},
+ * 10 bits de ID de nodo y 12 bits de secuencia dentro del milisegundo, codificado en
+ * base32 de Crockford con ancho fijo (13 caracteres), p. ej. {@code ORD-01HV3K9Q7M0A2}.
+ * Al tener ancho fijo el orden alfabético coincide con el orden de creación.
+ *
+ * La unicidad entre instancias depende de que cada una tenga un
+ * {@code app.order-number.node-id} distinto (0-1023). No tiene valor por defecto:
+ * si no se configura la aplicación no arranca, porque dos réplicas con el mismo
+ * nodo emitirían números repetidos en el mismo milisegundo. Dentro de una instancia el
+ * estado (milisegundo, secuencia) avanza con CAS sin bloqueos; si la secuencia se
+ * agota o el reloj retrocede se sigue desde el último valor emitido, de modo que
+ * nunca se repite un número.
+ */
+@Component
+@Slf4j
+public class OrderNumberGenerator {
+
+    // 2024-01-01T00:00:00Z
+    static final long EPOCH = 1704067200000L;
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13;
+    private static final String PREFIX = "ORD-";
+
+    private final long nodeId;
+
+    // (milisegundos desde EPOCH << SEQUENCE_BITS) | secuencia del último número emitido
+    private final AtomicLong last = new AtomicLong();
+
+    public OrderNumberGenerator(@Value("${app.order-number.node-id:}") String configuredNodeId) {
+        if (configuredNodeId == null || configuredNodeId.isBlank()) {
+            throw new IllegalStateException(
+                    "app.order-number.node-id (ORDER_NODE_ID) no está configurado; debe ser único por instancia");
+        }
+        long nodeId;
+        try {
+            nodeId = Long.parseLong(configuredNodeId.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalStateException("app.order-number.node-id no es un número: " + configuredNodeId);
+        }
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalStateException("app.order-number.node-id debe estar entre 0 y " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+        log.info("Order number generator using node id {}", nodeId);
+    }
+
+    /**
+     * Siguiente número de orden
+     */
+    public String next() {
+        return PREFIX + encode(nextId());
+    }
+
+    long nextId() {
+        long candidate = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        long previous;
+        long current;
+        do {
+            previous = last.get();
+            current = Math.max(candidate, previous + 1);
+        } while (!last.compareAndSet(previous, current));
+
+        long timestamp = current >>> SEQUENCE_BITS;
+        long sequence = current & SEQUENCE_MASK;
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+}
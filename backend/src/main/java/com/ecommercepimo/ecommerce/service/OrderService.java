@@ -6,15 +6,22 @@ import com.ecommercepimo.ecommerce.mapper.OrderMapper;
 import com.ecommercepimo.ecommerce.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,58 +30,54 @@ import java.util.stream.Collectors;
 @Transactional
 public class OrderService {
 
+    private static final Map<String, Class<?>> SCROLL_KEYS = Map.of(
+            "id", Long.class,
+            "createdAt", LocalDateTime.class);
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
     private final OrderMapper orderMapper;
+    private final StockReservationService stockReservationService;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final IdempotencyService idempotencyService;
+    private final OrderExpiryService orderExpiryService;
+    private final FlashSaleService flashSaleService;
 
     /**
      * Crear nueva orden
      */
     public OrderResponse createOrder(String userEmail, OrderCreateRequest request) {
+        return createOrder(userEmail, request, null);
+    }
+
+    /**
+     * Crear nueva orden registrando su Idempotency-Key en la misma transaccin
+     */
+    public OrderResponse createOrder(String userEmail, OrderCreateRequest request, String idempotencyKey) {
         log.info("Creating new order for user: {}", userEmail);
 
         // Obtener usuario
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
-        // Crear orden
-        Order order = Order.builder()
-                .orderNumber(generateOrderNumber())
-                .user(user)
-                .status(Order.OrderStatus.PENDING)
-                .shippingAddress(request.getShippingAddress())
-                .paymentMethod(request.getPaymentMethod())
-                .paymentStatus(Order.PaymentStatus.PENDING)
-                .totalAmount(BigDecimal.ZERO)
-                .build();
+        // Reservar stock con UPDATE condicionales (en orden de ID de producto)
+        Map<Long, Integer> quantities = quantitiesByProduct(request);
+        stockReservationService.reserve(quantities);
 
-        // Procesar items de la orden
-        for (OrderItemCreateRequest itemRequest : request.getOrderItems()) {
-            Product product = productRepository.findById(itemRequest.getProductId())
-                    .orElseThrow(() -> new RuntimeException("Producto no encontrado: " + itemRequest.getProductId()));
+        // Cargar todos los productos de la orden en una sola consulta
+        Map<Long, Product> products = resolveProducts(quantities.keySet());
 
-            // Verificar stock disponible
-            if (product.getStock() < itemRequest.getQuantity()) {
-                throw new RuntimeException("Stock insuficiente para producto: " + product.getName());
-            }
+        Order order = newOrder(user, request, products, orderNumberGenerator.next());
 
-            // Crear item de orden
-            OrderItem orderItem = OrderItem.builder()
-                    .product(product)
-                    .quantity(itemRequest.getQuantity())
-                    .unitPrice(product.getPrice())
-                    .build();
-
-            order.addOrderItem(orderItem);
-
-            // Actualizar stock del producto
-            product.decreaseStock(itemRequest.getQuantity());
-            productRepository.save(product);
+        // Con la secuencia agrupada el INSERT se retrasa hasta el flush; la fila debe
+        // existir antes de registrar la clave, que la referencia por clave externa
+        Order savedOrder = orderRepository.saveAndFlush(order);
+        if (idempotencyKey != null && !idempotencyService.record(userEmail, idempotencyKey, savedOrder.getId())) {
+            throw new DuplicateKeyException("Idempotency-Key ya utilizada: " + idempotencyKey);
         }
-
-        Order savedOrder = orderRepository.save(order);
+        orderExpiryService.register(savedOrder.getId());
         log.info("Order created successfully with number: {}", savedOrder.getOrderNumber());
 
         return orderMapper.toOrderResponse(savedOrder);
@@ -123,6 +126,22 @@ public class OrderService {
         return orders.map(orderMapper::toOrderResponse);
     }
 
+    /**
+     * Recorrer todas las rdenes por cursor (keyset), sin conteo total (solo admins)
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> scrollAllOrders(String cursor, int size, String sortBy, Sort.Direction direction) {
+        if (!SCROLL_KEYS.containsKey(sortBy)) {
+            throw new RuntimeException("Campo de ordenacin no soportado: " + sortBy);
+        }
+        Sort sort = KeysetCursor.sort(sortBy, direction);
+        ScrollPosition position = KeysetCursor.decode(cursor, sort, SCROLL_KEYS);
+
+        return KeysetCursor.page(
+                orderRepository.findAllBy(position, sort, Limit.of(KeysetCursor.limit(size))),
+                orderMapper::toOrderResponse);
+    }
+
     /**
      * Obtener rdenes por estado
      */
@@ -140,9 +159,16 @@ public class OrderService {
     public OrderResponse updateOrderStatus(Long id, Order.OrderStatus newStatus) {
         log.info("Updating order {} status to: {}", id, newStatus);
 
-        Order order = orderRepository.findById(id)
+        // Bloqueo de fila, como en cancelOrder: la cancelacin o la caducidad de
+        // pendientes pueden estar cambiando la misma orden
+        Order order = orderRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new RuntimeException("Orden no encontrada"));
 
+        // Una orden cancelada ya devolvi su stock; no puede volver a otro estado
+        if (order.getStatus() == Order.OrderStatus.CANCELLED) {
+            throw new RuntimeException("La orden ya est cancelada");
+        }
+
         order.setStatus(newStatus);
 
         // Actualizar timestamps segn el estado
@@ -167,7 +193,8 @@ public class OrderService {
     public OrderResponse cancelOrder(Long id, String userEmail) {
         log.info("Cancelling order {} for user: {}", id, userEmail);
 
-        Order order = orderRepository.findById(id)
+        // Bloqueo de fila: la caducidad de pendientes puede cancelar la misma orden
+        Order order = orderRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new RuntimeException("Orden no encontrada"));
 
         // Verificar que la orden pertenezca al usuario
@@ -180,13 +207,17 @@ public class OrderService {
             order.getStatus() == Order.OrderStatus.DELIVERED) {
             throw new RuntimeException("No se puede cancelar una orden ya enviada o entregada");
         }
+        if (order.getStatus() == Order.OrderStatus.CANCELLED) {
+            throw new RuntimeException("La orden ya est cancelada");
+        }
 
         // Restaurar stock de productos
+        Map<Long, Integer> quantities = new TreeMap<>();
         for (OrderItem item : order.getOrderItems()) {
-            Product product = item.getProduct();
-            product.increaseStock(item.getQuantity());
-            productRepository.save(product);
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
         }
+        stockReservationService.release(quantities);
+        flashSaleService.onOrdersCancelled(List.of(id));
 
         order.setStatus(Order.OrderStatus.CANCELLED);
         Order cancelledOrder = orderRepository.save(order);
@@ -213,7 +244,61 @@ public class OrderService {
         return orderRepository.calculateTotalSalesBetweenDates(startDate, endDate);
     }
 
-    private String generateOrderNumber() {
-        return "ORD-" + System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    /**
+     * Resolver los productos referenciados por las lneas con un nico findAllById
+     */
+    private Map<Long, Product> resolveProducts(Collection<Long> productIds) {
+        Map<Long, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        for (Long productId : productIds) {
+            if (!products.containsKey(productId)) {
+                throw new RuntimeException("Producto no encontrado: " + productId);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Cantidades pedidas por producto (lneas repetidas se suman)
+     */
+    static Map<Long, Integer> quantitiesByProduct(OrderCreateRequest request) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (OrderItemCreateRequest itemRequest : request.getOrderItems()) {
+            quantities.merge(itemRequest.getProductId(), itemRequest.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    /**
+     * Construir la orden con sus items (sin persistir) a partir de productos ya resueltos
+     */
+    static Order newOrder(User user, OrderCreateRequest request, Map<Long, Product> products, String orderNumber) {
+        Order order = Order.builder()
+                .orderNumber(orderNumber)
+                .user(user)
+                .status(Order.OrderStatus.PENDING)
+                .shippingAddress(request.getShippingAddress())
+                .paymentMethod(request.getPaymentMethod())
+                .paymentStatus(Order.PaymentStatus.PENDING)
+                .totalAmount(BigDecimal.ZERO)
+                .build();
+
+        // Procesar items de la orden
+        for (OrderItemCreateRequest itemRequest : request.getOrderItems()) {
+            Product product = products.get(itemRequest.getProductId());
+
+            // Crear item de orden
+            OrderItem orderItem = OrderItem.builder()
+                    .product(product)
+                    .quantity(itemRequest.getQuantity())
+                    .unitPrice(product.getPrice())
+                    .build();
+
+            // El subtotal debe existir antes de recalcular el total de la orden
+            orderItem.calculateSubtotal();
+            order.addOrderItem(orderItem);
+        }
+        return order;
     }
 }
\ No newline at end of file
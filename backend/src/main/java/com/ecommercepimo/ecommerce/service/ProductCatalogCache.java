@@ -0,0 +1,242 @@
+package com.ecommercepimo.ecommerce.service;
+
+import com.ecommercepimo.ecommerce.dto.ProductResponse;
+import com.ecommercepimo.ecommerce.entity.Product;
+import com.ecommercepimo.ecommerce.mapper.ProductMapper;
+import com.ecommercepimo.ecommerce.repository.ProductRepository;
+import com.ecommercepimo.ecommerce.search.ProductFacets;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache de lectura del catálogo para las páginas de la tienda: producto por ID,
+ * destacados y categorías disponibles.
+ *
+ * Los productos se cargan bajo demanda en una cache Caffeine acotada; los cambios
+ * de {@link ProductService} escriben la nueva versión tras el commit y las reservas
+ * de stock desalojan los productos afectados y los marcan en {@link ProductFacets}
+ * para que relea su stock. Los destacados se recalculan tras cualquier cambio que
+ * pueda afectarles. Las categorías se mantienen como un conjunto con el número de
+ * productos activos de cada una, en lugar de un {@code SELECT DISTINCT} por petición.
+ */
+@Component
+@Slf4j
+public class ProductCatalogCache {
+
+    private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+    private final ProductFacets productFacets;
+    private final Cache<Long, ProductResponse> products;
+
+    // Destacados; null hasta la primera carga o tras una invalidación.
+    // La generación evita publicar una carga que empezó antes de invalidar.
+    private final Object featuredLock = new Object();
+    private volatile List<ProductResponse> featured;
+    private long featuredGeneration;
+
+    // Categorías; protegidas por categoriesLock y cargadas en la primera consulta
+    private final Object categoriesLock = new Object();
+    private Map<Long, String> categoryByProduct;
+    private final TreeMap<String, Integer> productsPerCategory = new TreeMap<>();
+    private volatile List<String> categories;
+
+    // Versiones para los ETag de destacados y de categorías. Suben después de aplicar
+    // cada cambio, así que una versión leída antes de cargar una respuesta nunca es
+    // más nueva que ella. Las reservas de stock solo mueven la de destacados. El
+    // instante de arranque separa procesos.
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong featuredVersion = new AtomicLong(1);
+    private final AtomicLong categoriesVersion = new AtomicLong(1);
+
+    public ProductCatalogCache(ProductRepository productRepository,
+                               ProductMapper productMapper,
+                               ProductFacets productFacets,
+                               @Value("${app.catalog-cache.products.max-size:10000}") long maxSize,
+                               @Value("${app.catalog-cache.products.ttl-seconds:300}") long ttlSeconds) {
+        this.productRepository = productRepository;
+        this.productMapper = productMapper;
+        this.productFacets = productFacets;
+        this.products = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    /**
+     * ETag de la lista de destacados; no consulta la base de datos
+     */
+    public String getFeaturedEtag() {
+        return "\"featured-" + epoch + "-" + featuredVersion.get() + "\"";
+    }
+
+    /**
+     * ETag de la lista de categorías; no consulta la base de datos
+     */
+    public String getCategoriesEtag() {
+        return "\"categories-" + epoch + "-" + categoriesVersion.get() + "\"";
+    }
+
+    /**
+     * ETag de un producto: updatedAt cambia con cada modificación por JPA y el stock
+     * cubre las reservas, que lo actualizan por SQL sin tocar updatedAt
+     */
+    public static String etag(ProductResponse product) {
+        return "\"" + product.getId() + "-" + product.getUpdatedAt() + "-" + product.getStock() + "\"";
+    }
+
+    /**
+     * Producto por ID (activo o no, igual que {@code findById}); las cargas
+     * concurrentes de un mismo ID comparten una sola consulta
+     */
+    public ProductResponse getProduct(Long id) {
+        return products.get(id, key -> productRepository.findById(key)
+                .map(productMapper::toProductResponse)
+                .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + key)));
+    }
+
+    public List<ProductResponse> getFeaturedProducts() {
+        List<ProductResponse> current = featured;
+        if (current != null) {
+            return current;
+        }
+        long generation;
+        synchronized (featuredLock) {
+            generation = featuredGeneration;
+        }
+        List<ProductResponse> loaded = productRepository.findByActiveTrueAndFeaturedTrueOrderByRatingDesc().stream()
+                .map(productMapper::toProductResponse)
+                .toList();
+        synchronized (featuredLock) {
+            if (featuredGeneration == generation) {
+                featured = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    public List<String> getCategories() {
+        List<String> current = categories;
+        if (current != null) {
+            return current;
+        }
+        synchronized (categoriesLock) {
+            if (categories == null) {
+                Map<Long, String> assignments = new HashMap<>();
+                productRepository.findActiveCategoryAssignments()
+                        .forEach(row -> assignments.put(row.getId(), row.getCategory()));
+                assignments.values().forEach(category -> productsPerCategory.merge(category, 1, Integer::sum));
+                categoryByProduct = assignments;
+                categories = List.copyOf(productsPerCategory.keySet());
+                log.debug("Loaded {} categories from {} active products", categories.size(), assignments.size());
+            }
+            return categories;
+        }
+    }
+
+    /**
+     * Publicar la nueva versión de un producto creado, modificado o desactivado.
+     * Con transacción activa el cambio se aplica tras el commit, y el producto se
+     * convierte entonces: {@code @UpdateTimestamp} no rellena updatedAt hasta el
+     * flush, y convertirlo antes dejaría en cache el updatedAt (y el ETag) anterior.
+     */
+    public void onProductChanged(Product product) {
+        afterCommit(() -> {
+            ProductResponse response = productMapper.toProductResponse(product);
+            products.put(response.getId(), response);
+            if (Boolean.TRUE.equals(response.getFeatured()) || affectsFeatured(Set.of(response.getId()))) {
+                invalidateFeatured();
+            }
+            if (updateCategory(response.getId(),
+                    Boolean.TRUE.equals(response.getActive()) ? response.getCategory() : null)) {
+                categoriesVersion.incrementAndGet();
+            }
+            featuredVersion.incrementAndGet();
+        });
+    }
+
+    /**
+     * Desalojar productos cuyo stock cambió por SQL directo (reservas de órdenes)
+     */
+    public void onStockChanged(Collection<Long> productIds) {
+        Set<Long> ids = Set.copyOf(productIds);
+        afterCommit(() -> {
+            products.invalidateAll(ids);
+            productFacets.onStockChanged(ids);
+            if (affectsFeatured(ids)) {
+                invalidateFeatured();
+            }
+            featuredVersion.incrementAndGet();
+        });
+    }
+
+    // Sin lista publicada puede haber una carga en curso que ya no sería válida
+    private boolean affectsFeatured(Set<Long> ids) {
+        List<ProductResponse> current = featured;
+        return current == null || current.stream().anyMatch(product -> ids.contains(product.getId()));
+    }
+
+    private void invalidateFeatured() {
+        synchronized (featuredLock) {
+            featuredGeneration++;
+            featured = null;
+        }
+    }
+
+    /**
+     * Mover un producto de categoría; {@code category} null si ya no está activo.
+     * Devuelve si la lista de categorías pudo cambiar.
+     */
+    private boolean updateCategory(Long productId, String category) {
+        synchronized (categoriesLock) {
+            if (categoryByProduct == null) {
+                // Aún no cargadas: la primera consulta ya verá el cambio confirmado
+                return true;
+            }
+            String previous = category != null
+                    ? categoryByProduct.put(productId, category)
+                    : categoryByProduct.remove(productId);
+            if (category != null && category.equals(previous)) {
+                return false;
+            }
+            boolean changed = false;
+            if (previous != null && productsPerCategory.merge(previous, -1, Integer::sum) == 0) {
+                productsPerCategory.remove(previous);
+                changed = true;
+            }
+            if (category != null && productsPerCategory.merge(category, 1, Integer::sum) == 1) {
+                changed = true;
+            }
+            if (changed) {
+                categories = List.copyOf(productsPerCategory.keySet());
+            }
+            return changed;
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -4,15 +4,30 @@ import com.ecommercepimo.ecommerce.dto.*;
 import com.ecommercepimo.ecommerce.entity.Product;
 import com.ecommercepimo.ecommerce.mapper.ProductMapper;
 import com.ecommercepimo.ecommerce.repository.ProductRepository;
+import com.ecommercepimo.ecommerce.search.ProductFacets;
+import com.ecommercepimo.ecommerce.search.ProductSearchIndex;
+import com.ecommercepimo.ecommerce.search.ProductSuggester;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,8 +36,18 @@ import java.util.stream.Collectors;
 @Transactional
 public class ProductService {
 
+    private static final Map<String, Class<?>> SCROLL_KEYS = Map.of(
+            "id", Long.class,
+            "name", String.class,
+            "price", BigDecimal.class,
+            "createdAt", LocalDateTime.class);
+
     private final ProductRepository productRepository;
     private final ProductMapper productMapper;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductSuggester productSuggester;
+    private final ProductFacets productFacets;
+    private final ProductCatalogCache productCatalogCache;
 
     /**
      * Crear nuevo producto
@@ -34,22 +59,23 @@ public class ProductService {
         product.setActive(true);
 
         Product savedProduct = productRepository.save(product);
+        productSearchIndex.onProductChanged(savedProduct);
+        productSuggester.onProductChanged(savedProduct);
+        productFacets.onProductChanged(savedProduct);
+        productCatalogCache.onProductChanged(savedProduct);
         log.info("Product created successfully with ID: {}", savedProduct.getId());
 
         return productMapper.toProductResponse(savedProduct);
     }
 
     /**
-     * Obtener producto por ID
+     * Obtener producto por ID. Se sirve desde la cache del catlogo: en un acierto
+     * no se abre transaccin ni se pide conexin al pool.
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ProductResponse getProductById(Long id) {
         log.debug("Getting product by ID: {}", id);
-
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
-
-        return productMapper.toProductResponse(product);
+        return productCatalogCache.getProduct(id);
     }
 
     /**
@@ -59,21 +85,119 @@ public class ProductService {
     public Page<ProductResponse> getAllProducts(Pageable pageable) {
         log.debug("Getting all active products with pagination");
 
+        ProductSortField.validate(pageable.getSort());
         Page<Product> products = productRepository.findByActiveTrue(pageable);
         return products.map(productMapper::toProductResponse);
     }
 
     /**
-     * Buscar productos por nombre
+     * Recorrer los productos activos por cursor (keyset), sin conteo total
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ProductResponse> scrollProducts(String cursor, int size, String sortBy, Sort.Direction direction) {
+        if (!SCROLL_KEYS.containsKey(ProductSortField.fromProperty(sortBy).getProperty())) {
+            // rating admite nulos y no sirve como clave de keyset
+            throw new RuntimeException("Campo de ordenacin no soportado para cursor: " + sortBy);
+        }
+        Sort sort = KeysetCursor.sort(sortBy, direction);
+        ScrollPosition position = KeysetCursor.decode(cursor, sort, SCROLL_KEYS);
+
+        return KeysetCursor.page(
+                productRepository.findByActiveTrue(position, sort, Limit.of(KeysetCursor.limit(size))),
+                productMapper::toProductResponse);
+    }
+
+    /**
+     * Buscar productos por nombre; con {@code fuzzy} se toleran erratas en la consulta
      */
     @Transactional(readOnly = true)
-    public Page<ProductResponse> searchProductsByName(String name, Pageable pageable) {
-        log.debug("Searching products by name: {}", name);
+    public Page<ProductResponse> searchProductsByName(String name, Pageable pageable, boolean fuzzy) {
+        log.debug("Searching products by name: {} (fuzzy: {})", name, fuzzy);
+        ProductSortField.validate(pageable.getSort());
+
+        // El ndice en memoria evita el LIKE '%...%' (recorrido completo de la tabla)
+        if (productSearchIndex.isReady()) {
+            Optional<Page<Long>> ids = fuzzy
+                    ? productSearchIndex.fuzzySearch(name, pageable)
+                    : productSearchIndex.search(name, pageable);
+            if (ids.isPresent()) {
+                return loadPage(ids.get());
+            }
+        }
 
         Page<Product> products = productRepository.findByActiveTrueAndNameContaining(name, pageable);
         return products.map(productMapper::toProductResponse);
     }
 
+    /**
+     * Bsqueda de texto completo en nombre, descripcin y categora, por relevancia.
+     * El orden lo fija ts_rank, as que se ignora el de {@code pageable}.
+     */
+    @Transactional(readOnly = true)
+    public Page<ProductSearchResult> searchProductsFullText(String query, Pageable pageable) {
+        log.debug("Full-text product search: {}", query);
+
+        Page<ProductRepository.TextMatch> matches = productRepository.searchFullText(query,
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+
+        Map<Long, Product> products = productRepository.findAllById(
+                        matches.getContent().stream().map(ProductRepository.TextMatch::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        List<ProductSearchResult> content = matches.getContent().stream()
+                .filter(match -> products.containsKey(match.getId()))
+                .map(match -> ProductSearchResult.builder()
+                        .product(productMapper.toProductResponse(products.get(match.getId())))
+                        .rank(match.getRank())
+                        .highlight(match.getHighlight())
+                        .build())
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, matches.getPageable(), matches.getTotalElements());
+    }
+
+    /**
+     * Conteos por categora, rango de precio, rating y stock para un filtro, opcionalmente
+     * sobre los resultados de una bsqueda por nombre. Se calculan en memoria.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ProductFacetsResponse getFacets(String query, ProductFacets.Filter filter) {
+        List<Long> restrictTo = null;
+        if (query != null && !query.isBlank()) {
+            if (!productSearchIndex.isReady()) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "ndice de bsqueda no disponible, intente nuevamente");
+            }
+            restrictTo = productSearchIndex.search(query, Pageable.unpaged())
+                    .map(Page::getContent)
+                    .orElse(List.of());
+        }
+
+        ProductFacets.FacetCounts counts = productFacets.count(filter, restrictTo);
+        return ProductFacetsResponse.builder()
+                .total(counts.total())
+                .categories(counts.categories())
+                .priceRanges(counts.priceRanges())
+                .ratings(counts.ratings())
+                .inStock(counts.inStock())
+                .build();
+    }
+
+    /**
+     * Sugerencias de autocompletado para un prefijo. Se sirven desde memoria,
+     * por eso no abren transaccin ni piden conexin al pool.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<SuggestionResponse> suggestProducts(String prefix, int limit) {
+        return productSuggester.suggest(prefix, limit).stream()
+                .map(suggestion -> SuggestionResponse.builder()
+                        .text(suggestion.text())
+                        .type(suggestion.type().name())
+                        .productId(suggestion.productId())
+                        .build())
+                .toList();
+    }
+
     /**
      * Obtener productos por categora
      */
@@ -81,6 +205,7 @@ public class ProductService {
     public Page<ProductResponse> getProductsByCategory(String category, Pageable pageable) {
         log.debug("Getting products by category: {}", category);
 
+        ProductSortField.validate(pageable.getSort());
         Page<Product> products = productRepository.findByActiveTrueAndCategory(category, pageable);
         return products.map(productMapper::toProductResponse);
     }
@@ -92,30 +217,43 @@ public class ProductService {
     public Page<ProductResponse> filterProductsByPrice(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
         log.debug("Filtering products by price range: {} - {}", minPrice, maxPrice);
 
+        ProductSortField.validate(pageable.getSort());
         Page<Product> products = productRepository.findByActiveTrueAndPriceBetween(minPrice, maxPrice, pageable);
         return products.map(productMapper::toProductResponse);
     }
 
     /**
-     * Obtener productos destacados
+     * Obtener productos destacados (cache del catlogo)
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<ProductResponse> getFeaturedProducts() {
         log.debug("Getting featured products");
+        return productCatalogCache.getFeaturedProducts();
+    }
 
-        List<Product> products = productRepository.findByActiveTrueAndFeaturedTrueOrderByRatingDesc();
-        return products.stream()
-                .map(productMapper::toProductResponse)
-                .collect(Collectors.toList());
+    /**
+     * ETag de la lista de destacados, desde la versin del catlogo en memoria
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String getFeaturedEtag() {
+        return productCatalogCache.getFeaturedEtag();
     }
 
     /**
-     * Obtener categoras disponibles
+     * ETag de la lista de categoras, desde la versin del catlogo en memoria
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String getCategoriesEtag() {
+        return productCatalogCache.getCategoriesEtag();
+    }
+
+    /**
+     * Obtener categoras disponibles; se mantienen en memoria en lugar de un DISTINCT por consulta
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<String> getAvailableCategories() {
         log.debug("Getting available categories");
-        return productRepository.findDistinctCategories();
+        return productCatalogCache.getCategories();
     }
 
     /**
@@ -129,6 +267,10 @@ public class ProductService {
 
         productMapper.updateProductFromDto(request, product);
         Product updatedProduct = productRepository.save(product);
+        productSearchIndex.onProductChanged(updatedProduct);
+        productSuggester.onProductChanged(updatedProduct);
+        productFacets.onProductChanged(updatedProduct);
+        productCatalogCache.onProductChanged(updatedProduct);
 
         log.info("Product updated successfully: {}", id);
         return productMapper.toProductResponse(updatedProduct);
@@ -145,6 +287,10 @@ public class ProductService {
 
         product.setActive(false);
         productRepository.save(product);
+        productSearchIndex.onProductChanged(product);
+        productSuggester.onProductChanged(product);
+        productFacets.onProductChanged(product);
+        productCatalogCache.onProductChanged(product);
 
         log.info("Product deleted successfully: {}", id);
     }
@@ -173,8 +319,25 @@ public class ProductService {
 
         product.setStock(newStock);
         Product updatedProduct = productRepository.save(product);
+        productFacets.onProductChanged(updatedProduct);
+        productCatalogCache.onProductChanged(updatedProduct);
 
         log.info("Stock updated successfully for product: {}", id);
         return productMapper.toProductResponse(updatedProduct);
     }
+
+    /**
+     * Cargar con un nico findAllById los productos de una pgina de IDs, respetando su orden
+     */
+    private Page<ProductResponse> loadPage(Page<Long> ids) {
+        Map<Long, Product> products = productRepository.findAllById(ids.getContent()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        List<ProductResponse> content = ids.getContent().stream()
+                .map(products::get)
+                .filter(product -> product != null)
+                .map(productMapper::toProductResponse)
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, ids.getPageable(), ids.getTotalElements());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+package com.ecommercepimo.ecommerce.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Respuestas JSON ya serializadas (y opcionalmente comprimidas con gzip) de las
+ * lecturas más frecuentes del catálogo.
+ *
+ * La clave es la propia instancia que devuelve {@link ProductCatalogCache}
+ * (comparación por identidad, referencia débil): cada versión de un producto o de
+ * la lista de destacados se serializa una sola vez. Cuando los hooks de cambio del
+ * catálogo sustituyen o desalojan la instancia, su entrada deja de ser alcanzable
+ * y el recolector la elimina, sin una invalidación aparte que pueda olvidarse.
+ */
+@Component
+public class SerializedResponseCache {
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final boolean gzip;
+    private final int gzipMinBytes;
+    private final Cache<Object, SerializedResponse> responses;
+
+    public SerializedResponseCache(ObjectMapper objectMapper,
+                                   @Value("${app.response-cache.enabled:true}") boolean enabled,
+                                   @Value("${app.response-cache.gzip:true}") boolean gzip,
+                                   @Value("${app.response-cache.gzip-min-bytes:1024}") int gzipMinBytes,
+                                   @Value("${app.response-cache.max-size:10000}") long maxSize) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.gzip = gzip;
+        this.gzipMinBytes = gzipMinBytes;
+        this.responses = Caffeine.newBuilder()
+                .weakKeys()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Escribir {@code value} directamente en la respuesta a partir de los bytes en cache.
+     * Devuelve false si la cache está desactivada y la respuesta debe serializarse como siempre.
+     */
+    public boolean write(Object value, String etag, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (!enabled) {
+            return false;
+        }
+        SerializedResponse serialized = responses.get(value, this::serialize);
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        byte[] body = serialized.json();
+        if (serialized.gzip() != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip(request)) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                body = serialized.gzip();
+            }
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        return true;
+    }
+
+    private SerializedResponse serialize(Object value) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("No se pudo serializar la respuesta", ex);
+        }
+        // Por debajo del umbral la cabecera gzip no compensa
+        byte[] compressed = gzip && json.length >= gzipMinBytes ? compress(json) : null;
+        return new SerializedResponse(json, compressed);
+    }
+
+    private static byte[] compress(byte[] json) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(json);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return buffer.toByteArray();
+    }
+
+    // gzip explícito manda sobre "*"; con q=0 la codificación queda rechazada
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] params = coding.split(";");
+            String name = params[0].trim();
+            boolean accepted = qualityOf(params) > 0;
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                return accepted;
+            }
+            if (name.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    private static double qualityOf(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException ex) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private record SerializedResponse(byte[] json, byte[] gzip) {
+    }
+}
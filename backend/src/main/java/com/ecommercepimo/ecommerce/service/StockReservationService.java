@@ -0,0 +1,101 @@
+package com.ecommercepimo.ecommerce.service;
+
+import com.ecommercepimo.ecommerce.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Reserva y liberación de stock mediante UPDATE condicionales de una sola sentencia,
+ * enviados como un único batch JDBC por orden.
+ * Las líneas se aplican siempre en orden ascendente de ID de producto para que dos
+ * checkouts concurrentes tomen los bloqueos de fila en el mismo orden (sin deadlocks).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(propagation = Propagation.MANDATORY)
+public class StockReservationService {
+
+    private static final String RESERVE_SQL =
+            "UPDATE products SET stock = stock - ? WHERE id = ? AND stock >= ?";
+
+    private static final String RELEASE_SQL =
+            "UPDATE products SET stock = stock + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductRepository productRepository;
+    private final ProductCatalogCache productCatalogCache;
+
+    /**
+     * Descontar stock para todas las líneas de una orden.
+     * Si algún producto no tiene stock suficiente se lanza excepción y la
+     * transacción de la orden revierte los descuentos ya aplicados.
+     */
+    public void reserve(Map<Long, Integer> quantitiesByProduct) {
+        Optional<RuntimeException> failure = tryReserve(quantitiesByProduct);
+        if (failure.isPresent()) {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * Descontar stock sin lanzar excepción: si alguna línea no puede reservarse se
+     * reponen las ya descontadas y se devuelve el error, dejando la transacción
+     * utilizable para el resto de órdenes del mismo lote.
+     */
+    public Optional<RuntimeException> tryReserve(Map<Long, Integer> quantitiesByProduct) {
+        Map<Long, Integer> lines = new TreeMap<>(quantitiesByProduct);
+        List<Long> productIds = new ArrayList<>();
+        List<Object[]> batchArgs = new ArrayList<>();
+        lines.forEach((productId, quantity) -> {
+            productIds.add(productId);
+            batchArgs.add(new Object[]{quantity, productId, quantity});
+        });
+
+        int[] updated = jdbcTemplate.batchUpdate(RESERVE_SQL, batchArgs);
+        productCatalogCache.onStockChanged(productIds);
+        Long rejected = null;
+        Map<Long, Integer> applied = new TreeMap<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                rejected = rejected != null ? rejected : productIds.get(i);
+            } else {
+                applied.put(productIds.get(i), lines.get(productIds.get(i)));
+            }
+        }
+        if (rejected == null) {
+            return Optional.empty();
+        }
+
+        if (!applied.isEmpty()) {
+            release(applied);
+        }
+        if (!productRepository.existsById(rejected)) {
+            return Optional.of(new RuntimeException("Producto no encontrado: " + rejected));
+        }
+        log.warn("Insufficient stock for product {} (requested {})", rejected, lines.get(rejected));
+        return Optional.of(new RuntimeException("Stock insuficiente para producto: " + rejected));
+    }
+
+    /**
+     * Reponer stock (cancelación de órdenes)
+     */
+    public void release(Map<Long, Integer> quantitiesByProduct) {
+        List<Object[]> batchArgs = new ArrayList<>();
+        new TreeMap<>(quantitiesByProduct).forEach((productId, quantity) ->
+                batchArgs.add(new Object[]{quantity, productId}));
+
+        jdbcTemplate.batchUpdate(RELEASE_SQL, batchArgs);
+        productCatalogCache.onStockChanged(quantitiesByProduct.keySet());
+    }
+}
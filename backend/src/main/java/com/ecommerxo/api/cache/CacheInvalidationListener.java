@@ -0,0 +1,114 @@
+package com.ecommerxo.api.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Escucha los avisos de invalidación de otras réplicas ({@code LISTEN cache_invalidation})
+ * y desaloja la copia local afectada. Los avisos se entregan además al handler
+ * registrado con ese nombre: lo que no es una cache (p. ej. el catálogo en memoria)
+ * solo tiene handler, y una cache puede tener uno para lo que depende de ella (p. ej.
+ * la versión de las categorías), que se ejecuta tras desalojar la copia local.
+ *
+ * Ocupa una conexión del pool de forma permanente. Si la conexión se pierde se
+ * vacían todas las copias locales y los handlers reciben una clave vacía, porque
+ * los avisos de ese intervalo no llegan, y se vuelve a escuchar.
+ */
+@Slf4j
+public class CacheInvalidationListener {
+
+    private static final int POLL_TIMEOUT_MS = 1000;
+    private static final long RECONNECT_DELAY_MS = 5000;
+
+    private final DataSource dataSource;
+    private final SharedCacheStore sharedCacheStore;
+    private final Map<String, TwoLevelCache> caches;
+    private final Map<String, Consumer<String>> handlers;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public CacheInvalidationListener(DataSource dataSource, SharedCacheStore sharedCacheStore,
+                                     Map<String, TwoLevelCache> caches, Map<String, Consumer<String>> handlers) {
+        this.dataSource = dataSource;
+        this.sharedCacheStore = sharedCacheStore;
+        this.caches = caches;
+        this.handlers = handlers;
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "cache-invalidation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + SharedCacheStore.CHANNEL);
+                }
+                caches.values().forEach(TwoLevelCache::clearLocal);
+                handlers.values().forEach(handler -> handler.accept(""));
+                log.info("Listening for cache invalidations on channel {}", SharedCacheStore.CHANNEL);
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException ex) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cache invalidation listener disconnected, retrying in {} ms", RECONNECT_DELAY_MS, ex);
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void handle(String payload) {
+        String[] parts = payload.split("\n", 3);
+        if (parts.length < 3 || parts[0].equals(sharedCacheStore.getNodeId())) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(parts[1]);
+        if (cache != null) {
+            if (parts[2].isEmpty()) {
+                cache.clearLocal();
+            } else {
+                cache.evictLocal(parts[2]);
+            }
+        }
+        Consumer<String> handler = handlers.get(parts[1]);
+        if (handler != null) {
+            handler.accept(parts[2]);
+        }
+    }
+}
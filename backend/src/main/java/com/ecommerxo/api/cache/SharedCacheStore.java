@@ -0,0 +1,120 @@
+package com.ecommerxo.api.cache;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Segundo nivel de cache compartido entre réplicas: la tabla UNLOGGED
+ * {@code cache_entries} de PostgreSQL, más el aviso de invalidación a los demás
+ * nodos con {@code pg_notify}. Dentro de una transacción, tanto la escritura
+ * como el NOTIFY se confirman o se descartan junto con ella.
+ */
+@Slf4j
+public class SharedCacheStore {
+
+    public static final String CHANNEL = "cache_invalidation";
+
+    private static final String SELECT_SQL =
+            "SELECT value FROM cache_entries WHERE cache_name = ? AND cache_key = ? AND expires_at > now()";
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO cache_entries (cache_name, cache_key, value, expires_at) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (cache_name, cache_key) DO UPDATE SET value = EXCLUDED.value, expires_at = EXCLUDED.expires_at";
+
+    private static final String DELETE_SQL = "DELETE FROM cache_entries WHERE cache_name = ? AND cache_key = ?";
+    private static final String CLEAR_SQL = "DELETE FROM cache_entries WHERE cache_name = ?";
+    private static final String PURGE_SQL = "DELETE FROM cache_entries WHERE expires_at <= now()";
+    private static final String NOTIFY_SQL = "SELECT pg_notify(?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+    private final Duration ttl;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public SharedCacheStore(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, Duration ttl) {
+        // Con tipo en el JSON para poder leer DTOs y listas como Object; solo se aceptan
+        // tipos de los DTOs de la API y del JDK
+        ObjectMapper mapper = objectMapper.copy().activateDefaultTyping(
+                BasicPolymorphicTypeValidator.builder()
+                        .allowIfSubType("com.ecommerxo.api.dto.")
+                        .allowIfSubType("java.util.")
+                        .allowIfSubType("java.time.")
+                        .allowIfSubType("java.math.")
+                        .allowIfSubType("java.lang.")
+                        .build(),
+                ObjectMapper.DefaultTyping.NON_FINAL,
+                JsonTypeInfo.As.PROPERTY);
+        this.jdbcTemplate = jdbcTemplate;
+        this.writer = mapper.writerFor(Object.class);
+        this.reader = mapper.readerFor(Object.class);
+        this.ttl = ttl;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public Optional<Object> get(String cacheName, String key) {
+        List<byte[]> values = jdbcTemplate.queryForList(SELECT_SQL, byte[].class, cacheName, key);
+        if (values.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.ofNullable(reader.readValue(values.get(0)));
+        } catch (IOException ex) {
+            // Formato antiguo o clase que ya no existe: se trata como fallo de cache
+            log.warn("Discarding unreadable shared cache entry {}/{}: {}", cacheName, key, ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void put(String cacheName, String key, Object value) {
+        byte[] bytes;
+        try {
+            bytes = writer.writeValueAsBytes(value);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("No se pudo serializar la entrada de cache " + cacheName + "/" + key, ex);
+        }
+        jdbcTemplate.update(UPSERT_SQL, cacheName, key, bytes, Timestamp.from(Instant.now().plus(ttl)));
+    }
+
+    public void evict(String cacheName, String key) {
+        jdbcTemplate.update(DELETE_SQL, cacheName, key);
+    }
+
+    public void clear(String cacheName) {
+        jdbcTemplate.update(CLEAR_SQL, cacheName);
+    }
+
+    /**
+     * Avisar al resto de nodos de que descarten su copia local; {@code key} null para toda la cache
+     */
+    public void publishInvalidation(String cacheName, String key) {
+        String payload = nodeId + "\n" + cacheName + "\n" + (key == null ? "" : key);
+        jdbcTemplate.queryForList(NOTIFY_SQL, CHANNEL, payload);
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.shared.purge-interval-ms:300000}")
+    public void purgeExpired() {
+        int deleted = jdbcTemplate.update(PURGE_SQL);
+        if (deleted > 0) {
+            log.debug("Purged {} expired shared cache entries", deleted);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.ecommerxo.api.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+/**
+ * Cache de dos niveles: Caffeine local (L1) delante de {@link SharedCacheStore} (L2).
+ *
+ * Las lecturas prueban L1, después L2 (y rellenan L1) y solo entonces cargan el
+ * valor. Las escrituras y desalojos van a L2 y a L1 y se notifican al resto de
+ * nodos, que descartan su copia local y la vuelven a leer de L2 cuando la necesitan.
+ * Las claves se guardan como texto para poder desalojarlas a partir del aviso.
+ *
+ * Con una cache de "no encontrado" asociada, las claves que figuran en ella no se
+ * buscan en L2: sondear IDs inexistentes no debe costar una consulta por petición.
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final Cache<Object, Object> local;
+    private final SharedCacheStore shared;
+    // Claves que se sabe que no existen; null si esta cache no tiene
+    private final org.springframework.cache.Cache notFound;
+
+    public TwoLevelCache(String name, Cache<Object, Object> local, SharedCacheStore shared) {
+        this(name, local, shared, null);
+    }
+
+    public TwoLevelCache(String name, Cache<Object, Object> local, SharedCacheStore shared,
+                         org.springframework.cache.Cache notFound) {
+        super(false);
+        this.name = name;
+        this.local = local;
+        this.shared = shared;
+        this.notFound = notFound;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Cache<Object, Object> getNativeCache() {
+        return local;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String localKey = key(key);
+        // Dentro de la función de Caffeine: un desalojo que llegue mientras se lee L2
+        // espera a que termine y descarta el valor, en lugar de perderse
+        return local.get(localKey, ignored -> shared(key, localKey).orElse(null));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = key(key);
+        // Caffeine ejecuta la función una sola vez por clave aunque haya fallos concurrentes
+        return (T) fromStoreValue(local.get(localKey, ignored -> shared(key, localKey).orElseGet(() -> {
+            try {
+                Object value = toStoreValue(valueLoader.call());
+                shared.put(name, localKey, value);
+                return value;
+            } catch (Exception ex) {
+                throw new ValueRetrievalException(key, valueLoader, ex);
+            }
+        })));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        String localKey = key(key);
+        Object storeValue = toStoreValue(value);
+        shared.put(name, localKey, storeValue);
+        shared.publishInvalidation(name, localKey);
+        local.put(localKey, storeValue);
+    }
+
+    @Override
+    public void evict(Object key) {
+        String localKey = key(key);
+        shared.evict(name, localKey);
+        shared.publishInvalidation(name, localKey);
+        local.invalidate(localKey);
+    }
+
+    @Override
+    public void clear() {
+        shared.clear(name);
+        shared.publishInvalidation(name, null);
+        local.invalidateAll();
+    }
+
+    // L2, salvo para las claves en la cache de "no encontrado": el loader lo resuelve sin consultar
+    private Optional<Object> shared(Object key, String localKey) {
+        if (notFound != null && notFound.get(key) != null) {
+            return Optional.empty();
+        }
+        return shared.get(name, localKey);
+    }
+
+    /**
+     * Descartar la copia local tras un aviso de otro nodo
+     */
+    void evictLocal(String key) {
+        local.invalidate(key);
+    }
+
+    void clearLocal() {
+        local.invalidateAll();
+    }
+
+    static String key(Object key) {
+        return String.valueOf(key);
+    }
+}
@@ -1,21 +1,140 @@
 package com.ecommerxo.api.config;
 
+import com.ecommerxo.api.cache.CacheInvalidationListener;
+import com.ecommerxo.api.cache.SharedCacheStore;
+import com.ecommerxo.api.cache.TwoLevelCache;
+import com.ecommerxo.api.dto.ProductDTO;
+import com.ecommerxo.api.service.CategoryService;
+import com.ecommerxo.api.service.ProductCatalog;
+import com.ecommerxo.api.service.ProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+import javax.sql.DataSource;
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+    // Spec por defecto de cada cache (CaffeineSpec); se sobrescribe con app.cache.spec.<cache>.
+    // maximumSize activa el desalojo W-TinyLFU, que no deja entrar claves vistas una sola vez
+    // (p. ej. un crawler recorriendo el catálogo) a costa de las frecuentes.
+    private static final Map<String, String> DEFAULT_SPECS = Map.of(
+            "products", "maximumSize=10000,expireAfterWrite=30m,refreshAfterWrite=5m,recordStats",
+            "lowStock", "maximumSize=16,expireAfterWrite=1m,recordStats",
+            "users", "maximumSize=1000,expireAfterWrite=10m,recordStats",
+            "orders", "maximumSize=1000,expireAfterWrite=5m,recordStats",
+            "categories", "maximumSize=500,expireAfterWrite=30m,recordStats",
+            "productsNotFound", "maximumSize=10000,expireAfterWrite=30s,recordStats");
+
+    // Caches que nunca se comparten entre réplicas: los "no encontrado" caducan enseguida y
+    // avisar al resto de nodos de cada uno costaría más que la consulta que ahorran. Leer
+    // "lowStock" de L2 cuesta casi lo mismo que la consulta original; en las demás réplicas
+    // un cambio se ve como mucho al minuto, cuando caduca su copia.
+    private static final Set<String> LOCAL_ONLY = Set.of("productsNotFound", "lowStock");
+
+    // Cache de "no encontrado" de cada cache compartida: sus claves no se buscan en L2
+    private static final Map<String, String> NOT_FOUND_CACHES = Map.of("products", "productsNotFound");
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cache.shared.enabled", havingValue = "true")
+    public SharedCacheStore sharedCacheStore(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                                             @Value("${app.cache.shared.ttl-seconds:1800}") long ttlSeconds) {
+        return new SharedCacheStore(jdbcTemplate, objectMapper, Duration.ofSeconds(ttlSeconds));
+    }
+
+    @Bean
+    public CacheManager cacheManager(Environment environment, @Lazy ProductService productService,
+                                     ObjectProvider<SharedCacheStore> sharedCacheStore) {
+        SharedCacheStore shared = sharedCacheStore.getIfAvailable();
+
+        // Loaders para las caches con refreshAfterWrite: la entrada se recarga en segundo plano
+        // y mientras tanto se sigue sirviendo el valor anterior. Con cache compartida la clave
+        // local es el id en texto y el valor recargado también se escribe en L2.
+        Map<String, CacheLoader<Object, Object>> loaders = new LinkedHashMap<>();
+        loaders.put("products", key -> {
+            ProductDTO product = productService.loadProduct(UUID.fromString(key.toString()));
+            if (shared != null) {
+                shared.put("products", key.toString(), product);
+            }
+            return product;
+        });
+
+        // Solo existen las caches declaradas: nada de caches dinámicas sin límite.
+        // Primero las locales, que las compartidas pueden usar como cache de "no encontrado".
+        Map<String, Cache> caches = new LinkedHashMap<>();
+        LOCAL_ONLY.forEach(name -> caches.put(name, new CaffeineCache(name, localCache(environment, name, null))));
+        DEFAULT_SPECS.forEach((name, defaultSpec) -> {
+            if (LOCAL_ONLY.contains(name)) {
+                return;
+            }
+            com.github.benmanes.caffeine.cache.Cache<Object, Object> local =
+                    localCache(environment, name, loaders.get(name));
+            Cache notFound = NOT_FOUND_CACHES.containsKey(name) ? caches.get(NOT_FOUND_CACHES.get(name)) : null;
+            caches.put(name, shared != null
+                    ? new TwoLevelCache(name, local, shared, notFound)
+                    : new CaffeineCache(name, local));
+        });
+
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(caches.values());
+        return cacheManager;
+    }
+
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object> localCache(
+            Environment environment, String name, CacheLoader<Object, Object> loader) {
+        Caffeine<Object, Object> builder = Caffeine.from(
+                environment.getProperty("app.cache.spec." + name, DEFAULT_SPECS.get(name)));
+        return loader != null ? builder.build(loader) : builder.build();
+    }
+
+    // Escucha las invalidaciones de las demás réplicas para descartar las copias locales (L1),
+    // releer en el catálogo en memoria los productos que cambiaron en otro nodo y cambiar de
+    // versión de categorías cuando otro nodo vacía "categories"
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty(name = "app.cache.shared.enabled", havingValue = "true")
+    public CacheInvalidationListener cacheInvalidationListener(DataSource dataSource,
+                                                               SharedCacheStore sharedCacheStore,
+                                                               CacheManager cacheManager,
+                                                               ProductCatalog productCatalog,
+                                                               CategoryService categoryService) {
+        Map<String, TwoLevelCache> caches = new HashMap<>();
+        cacheManager.getCacheNames().forEach(name -> {
+            if (cacheManager.getCache(name) instanceof TwoLevelCache cache) {
+                caches.put(name, cache);
+            }
+        });
+        return new CacheInvalidationListener(dataSource, sharedCacheStore, caches, Map.of(
+                ProductCatalog.INVALIDATION_NAME, productCatalog::onRemoteChange,
+                CategoryService.CACHE_NAME, categoryService::onRemoteChange));
+    }
+
+    // Métricas de Actuator (/actuator/caches, cache.gets...) a partir de la L1 de cada cache
     @Bean
-    public CacheManager cacheManager() {
-        // Usando cache en memoria para simplicidad
-        return new ConcurrentMapCacheManager("products", "users", "orders", "categories", "lowStock");
+    public CacheMeterBinderProvider<TwoLevelCache> twoLevelCacheMeterBinderProvider() {
+        return (cache, tags) -> new CaffeineCacheMetrics<>(cache.getNativeCache(), cache.getName(), tags);
     }
 
     // Configuración para Redis (opcional en producción)
@@ -5,6 +5,7 @@ import com.ecommerxo.api.service.CategoryService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import lombok.RequiredArgsConstructor;
 
 import jakarta.validation.Valid;
@@ -19,22 +20,34 @@ public class CategoryController {
     private final CategoryService categoryService;
 
     @GetMapping
-    public ResponseEntity<List<CategoryDTO>> getAllCategories() {
+    public ResponseEntity<List<CategoryDTO>> getAllCategories(WebRequest request) {
+        if (request.checkNotModified(categoryService.getCategoriesEtag())) {
+            return null;
+        }
         return ResponseEntity.ok(categoryService.getAllCategories());
     }
 
     @GetMapping("/root")
-    public ResponseEntity<List<CategoryDTO>> getRootCategories() {
+    public ResponseEntity<List<CategoryDTO>> getRootCategories(WebRequest request) {
+        if (request.checkNotModified(categoryService.getCategoriesEtag())) {
+            return null;
+        }
         return ResponseEntity.ok(categoryService.getRootCategories());
     }
 
     @GetMapping("/{id}/subcategories")
-    public ResponseEntity<List<CategoryDTO>> getSubcategories(@PathVariable UUID id) {
+    public ResponseEntity<List<CategoryDTO>> getSubcategories(@PathVariable UUID id, WebRequest request) {
+        if (request.checkNotModified(categoryService.getCategoriesEtag())) {
+            return null;
+        }
         return ResponseEntity.ok(categoryService.getSubcategories(id));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<CategoryDTO> getCategory(@PathVariable UUID id) {
+    public ResponseEntity<CategoryDTO> getCategory(@PathVariable UUID id, WebRequest request) {
+        if (request.checkNotModified(categoryService.getCategoriesEtag())) {
+            return null;
+        }
         return ResponseEntity.ok(categoryService.getCategory(id));
     }
 
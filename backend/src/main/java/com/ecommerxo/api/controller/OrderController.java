@@ -1,7 +1,10 @@
 package com.ecommerxo.api.controller;
 
+import com.ecommerxo.api.dto.CursorPageDTO;
 import com.ecommerxo.api.dto.OrderDTO;
+import com.ecommerxo.api.service.OrderIngestionPipeline;
 import com.ecommerxo.api.service.OrderService;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -18,11 +21,15 @@ import java.util.UUID;
 public class OrderController {
     
     private final OrderService orderService;
+    private final OrderIngestionPipeline orderIngestionPipeline;
 
     @PostMapping
     public ResponseEntity<OrderDTO> createOrder(
             @AuthenticationPrincipal String userId,
             @Valid @RequestBody OrderDTO orderDTO) {
+        if (orderIngestionPipeline.isEnabled()) {
+            return ResponseEntity.ok(orderIngestionPipeline.submitAndWait(UUID.fromString(userId), orderDTO));
+        }
         return ResponseEntity.ok(orderService.createOrder(UUID.fromString(userId), orderDTO));
     }
 
@@ -32,6 +39,16 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getAllOrders());
     }
 
+    @GetMapping("/scroll")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPageDTO<OrderDTO>> scrollOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "desc") String sortDir) {
+        Sort.Direction direction = sortDir.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
+        return ResponseEntity.ok(orderService.scrollOrders(cursor, size, direction));
+    }
+
     @GetMapping("/my-orders")
     public ResponseEntity<List<OrderDTO>> getMyOrders(
             @AuthenticationPrincipal String userId) {
@@ -2,7 +2,9 @@ package com.ecommerxo.api.controller;
 
 import com.ecommerxo.api.model.Product;
 import com.ecommerxo.api.service.ProductService;
+import com.ecommerxo.api.dto.CursorPageDTO;
 import com.ecommerxo.api.dto.ProductDTO;
+import com.ecommerxo.api.dto.ProductSortField;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -10,6 +12,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import lombok.RequiredArgsConstructor;
 
 import jakarta.validation.Valid;
@@ -24,8 +27,12 @@ public class ProductController {
     
     private final ProductService productService;
 
+    // If-None-Match se resuelve con la versión del catálogo antes de tocar la base de datos
     @GetMapping
-    public ResponseEntity<List<ProductDTO>> getAllProducts() {
+    public ResponseEntity<List<ProductDTO>> getAllProducts(WebRequest request) {
+        if (request.checkNotModified(productService.getCatalogEtag())) {
+            return null;
+        }
         return ResponseEntity.ok(productService.getAllProducts());
     }
 
@@ -36,17 +43,33 @@ public class ProductController {
             @RequestParam(defaultValue = "name") String sortBy,
             @RequestParam(defaultValue = "asc") String sortDir) {
         
-        Sort sort = sortDir.equalsIgnoreCase("desc") 
-            ? Sort.by(sortBy).descending() 
-            : Sort.by(sortBy).ascending();
+        Sort.Direction direction = sortDir.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sort = ProductSortField.fromProperty(sortBy).sort(direction);
         
         Pageable pageable = PageRequest.of(page, size, sort);
         return ResponseEntity.ok(productService.getAllProductsPaginated(pageable));
     }
 
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPageDTO<ProductDTO>> scrollProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "name") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir) {
+
+        Sort.Direction direction = sortDir.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return ResponseEntity.ok(productService.scrollProducts(cursor, size, sortBy, direction));
+    }
+
+    // El producto sale de la cache "products": el 304 solo evita el repositorio si ya
+    // estaba cacheado; en un fallo de cache se carga antes de comparar el ETag
     @GetMapping("/{id}")
-    public ResponseEntity<ProductDTO> getProduct(@PathVariable UUID id) {
-        return ResponseEntity.ok(productService.getProduct(id));
+    public ResponseEntity<ProductDTO> getProduct(@PathVariable UUID id, WebRequest request) {
+        ProductDTO product = productService.getProduct(id);
+        if (request.checkNotModified(productService.getProductEtag(product))) {
+            return null;
+        }
+        return ResponseEntity.ok(product);
     }
 
     @PostMapping
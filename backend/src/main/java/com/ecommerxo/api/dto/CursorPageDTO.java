@@ -0,0 +1,12 @@
+package com.ecommerxo.api.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class CursorPageDTO<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+}
@@ -0,0 +1,33 @@
+package com.ecommerxo.api.dto;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+
+// Campos de ordenación permitidos para productos; cada uno tiene índice (campo, id) en optimizations.sql
+public enum ProductSortField {
+    NAME("name"),
+    PRICE("price"),
+    CREATED_AT("createdAt");
+
+    private final String property;
+
+    ProductSortField(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Sort sort(Sort.Direction direction) {
+        return Sort.by(direction, property, "id");
+    }
+
+    public static ProductSortField fromProperty(String property) {
+        return Arrays.stream(values())
+                .filter(field -> field.property.equals(property))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Campo de ordenación no soportado: " + property));
+    }
+}
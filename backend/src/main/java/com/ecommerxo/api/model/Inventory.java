@@ -12,8 +12,8 @@ import java.util.UUID;
 @Table(name = "inventory")
 public class Inventory {
     @Id
-    @GeneratedValue(generator = "UUID")
-    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @GeneratedValue(generator = "uuid-v7")
+    @GenericGenerator(name = "uuid-v7", type = UuidV7Generator.class)
     private UUID id;
 
     @Column(name = "product_id", nullable = false)
@@ -0,0 +1,42 @@
+package com.ecommerxo.api.model;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generador de UUID versión 7 (RFC 9562): 48 bits de timestamp en milisegundos,
+ * 12 bits de contador dentro del mismo milisegundo y 62 bits aleatorios.
+ *
+ * Los IDs crecen con el tiempo, así los INSERT caen al final del índice de la clave
+ * primaria en lugar de repartirse por todo el B-tree como con UUID v4. Dentro de
+ * una instancia son estrictamente crecientes: si el contador se agota o el reloj
+ * retrocede se sigue a partir del último valor emitido.
+ */
+public class UuidV7Generator implements IdentifierGenerator {
+
+    // (milisegundos << 12) | contador del último UUID emitido
+    private static final AtomicLong LAST = new AtomicLong();
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return next();
+    }
+
+    public static UUID next() {
+        long candidate = System.currentTimeMillis() << 12;
+        long previous;
+        long current;
+        do {
+            previous = LAST.get();
+            current = Math.max(candidate, previous + 1);
+        } while (!LAST.compareAndSet(previous, current));
+
+        long mostSigBits = ((current >>> 12) << 16) | 0x7000L | (current & 0xFFFL);
+        long leastSigBits = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
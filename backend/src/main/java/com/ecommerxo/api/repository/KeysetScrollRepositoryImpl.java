@@ -0,0 +1,75 @@
+package com.ecommerxo.api.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.metamodel.EntityType;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+class KeysetScrollRepositoryImpl implements KeysetScrollRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public <T> Window<T> scroll(Class<T> entityType, String condition, ScrollPosition position, Sort sort, Limit limit) {
+        List<Sort.Order> orders = sort.toList();
+        if (orders.isEmpty() || orders.stream().map(Sort.Order::getDirection).distinct().count() > 1) {
+            throw new IllegalArgumentException("El orden de keyset necesita propiedades en una sola dirección: " + sort);
+        }
+        Map<String, Object> keys = position instanceof KeysetScrollPosition keyset ? keyset.getKeys() : Map.of();
+        EntityType<T> entity = entityManager.getMetamodel().entity(entityType);
+
+        StringJoiner where = new StringJoiner(" AND ", " WHERE ", "").setEmptyValue("");
+        if (condition != null) {
+            where.add(condition);
+        }
+        if (!keys.isEmpty()) {
+            StringJoiner columns = new StringJoiner(", ", "(", ")");
+            StringJoiner parameters = new StringJoiner(", ", "(", ")");
+            for (int i = 0; i < orders.size(); i++) {
+                String property = orders.get(i).getProperty();
+                columns.add("e." + property);
+                // Sin el tipo explícito Hibernate no admite comparar una tupla de parámetros
+                parameters.add("cast(:k" + i + " as " + entity.getAttribute(property).getJavaType().getName() + ")");
+            }
+            where.add(columns + (orders.get(0).isAscending() ? " > " : " < ") + parameters);
+        }
+        StringJoiner orderBy = new StringJoiner(", ", " ORDER BY ", "");
+        orders.forEach(order -> orderBy.add("e." + order.getProperty() + " " + order.getDirection().name()));
+
+        TypedQuery<T> query = entityManager.createQuery(
+                "SELECT e FROM " + entity.getName() + " e" + where + orderBy, entityType);
+        if (!keys.isEmpty()) {
+            for (int i = 0; i < orders.size(); i++) {
+                query.setParameter("k" + i, keys.get(orders.get(i).getProperty()));
+            }
+        }
+        // Una fila de más indica si hay página siguiente, sin count(*)
+        int max = limit.max();
+        List<T> results = query.setMaxResults(max + 1).getResultList();
+        boolean hasNext = results.size() > max;
+        List<T> content = hasNext ? new ArrayList<>(results.subList(0, max)) : results;
+
+        return Window.from(content, index -> ScrollPosition.forward(keysOf(content.get(index), orders)), hasNext);
+    }
+
+    private static Map<String, Object> keysOf(Object entity, List<Sort.Order> orders) {
+        BeanWrapper wrapper = new BeanWrapperImpl(entity);
+        Map<String, Object> keys = new LinkedHashMap<>();
+        orders.forEach(order -> keys.put(order.getProperty(), wrapper.getPropertyValue(order.getProperty())));
+        return keys;
+    }
+}
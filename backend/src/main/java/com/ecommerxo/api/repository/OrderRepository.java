@@ -1,6 +1,10 @@
 package com.ecommerxo.api.repository;
 
 import com.ecommerxo.api.model.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -9,8 +13,12 @@ import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, UUID> {
+public interface OrderRepository extends JpaRepository<Order, UUID>, KeysetScrollRepository {
     List<Order> findByUserId(UUID userId);
     List<Order> findByStatus(String status);
     List<Order> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end);
+
+    default Window<Order> findAllBy(ScrollPosition position, Sort sort, Limit limit) {
+        return scroll(Order.class, null, position, sort, limit);
+    }
 }
@@ -1,15 +1,23 @@
 package com.ecommerxo.api.repository;
 
 import com.ecommerxo.api.model.Product;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, UUID> {
+public interface ProductRepository extends JpaRepository<Product, UUID>, KeysetScrollRepository {
     List<Product> findByCategoryId(UUID categoryId);
     
     @Query("SELECT p FROM Product p WHERE p.stockQuantity <= p.minStockLevel")
@@ -24,4 +32,16 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
     
     @Query("SELECT p FROM Product p WHERE p.stockQuantity <= p.minStockLevel")
     List<Product> findLowStockProducts();
+
+    default Window<Product> findAllBy(ScrollPosition position, Sort sort, Limit limit) {
+        return scroll(Product.class, null, position, sort, limit);
+    }
+
+    // IDs de los productos más vendidos (unidades en pedidos), de más a menos
+    @Query("SELECT i.productId FROM OrderItem i GROUP BY i.productId ORDER BY SUM(i.quantity) DESC")
+    List<UUID> findTopSellingProductIds(Limit limit);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<Product> findAllByIdForUpdate(@Param("ids") Collection<UUID> ids);
 }
@@ -0,0 +1,170 @@
+package com.ecommerxo.api.service;
+
+import com.ecommerxo.api.dto.ProductDTO;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.UUID;
+
+/**
+ * Instantánea inmutable y versionada del catálogo completo.
+ *
+ * Nunca se modifica: cada lote de altas, cambios o bajas produce otra con la
+ * versión siguiente (si nada cambió se conserva la misma instantánea), que se
+ * publica de forma atómica. Los lectores siempre ven una instantánea completa y
+ * consistente.
+ *
+ * Los productos se guardan en trozos de {@link #CHUNK_SIZE}: un cambio copia el
+ * array de trozos y los trozos que toca, y comparte el resto y el índice por ID
+ * con la versión anterior, así que una reserva no copia el catálogo entero. Las
+ * altas se añaden al final con un índice nuevo; las bajas, que son raras,
+ * reconstruyen la instantánea.
+ */
+final class CatalogSnapshot {
+
+    static final int CHUNK_SIZE = 256;
+
+    private final long version;
+    private final Map<UUID, Integer> positions;
+    private final ProductDTO[][] chunks;
+    private final int size;
+    private final List<ProductDTO> list = new View();
+
+    private CatalogSnapshot(long version, Map<UUID, Integer> positions, ProductDTO[][] chunks, int size) {
+        this.version = version;
+        this.positions = positions;
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    static CatalogSnapshot of(long version, Collection<ProductDTO> products) {
+        Map<UUID, ProductDTO> byId = new LinkedHashMap<>();
+        products.forEach(product -> byId.put(product.getId(), product));
+        return build(version, byId.values());
+    }
+
+    private static CatalogSnapshot build(long version, Collection<ProductDTO> products) {
+        int size = products.size();
+        ProductDTO[][] chunks = new ProductDTO[chunkCount(size)][];
+        Map<UUID, Integer> positions = new HashMap<>();
+        int index = 0;
+        for (ProductDTO product : products) {
+            if (index % CHUNK_SIZE == 0) {
+                chunks[index / CHUNK_SIZE] = new ProductDTO[Math.min(CHUNK_SIZE, size - index)];
+            }
+            chunks[index / CHUNK_SIZE][index % CHUNK_SIZE] = product;
+            positions.put(product.getId(), index++);
+        }
+        return new CatalogSnapshot(version, Collections.unmodifiableMap(positions), chunks, size);
+    }
+
+    long version() {
+        return version;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Vista de solo lectura en el orden de carga, sin copiar los productos
+     */
+    List<ProductDTO> list() {
+        return list;
+    }
+
+    ProductDTO get(UUID productId) {
+        Integer position = positions.get(productId);
+        return position != null ? list.get(position) : null;
+    }
+
+    /**
+     * Mismos productos que {@code other}, sin tener en cuenta el orden
+     */
+    boolean sameProducts(CatalogSnapshot other) {
+        return size == other.size && list.stream().allMatch(product -> product.equals(other.get(product.getId())));
+    }
+
+    /**
+     * Aplica un lote de productos releídos ({@code changed}) y de IDs que ya no existen
+     * ({@code removed}) con una sola versión nueva
+     */
+    CatalogSnapshot with(Collection<ProductDTO> changed, Collection<UUID> removed) {
+        if (removed.stream().anyMatch(positions::containsKey)) {
+            Map<UUID, ProductDTO> byId = new LinkedHashMap<>();
+            list.forEach(product -> byId.put(product.getId(), product));
+            removed.forEach(byId::remove);
+            changed.forEach(product -> byId.put(product.getId(), product));
+            return build(version + 1, byId.values());
+        }
+
+        ProductDTO[][] copy = chunks;
+        List<ProductDTO> added = new ArrayList<>();
+        for (ProductDTO product : changed) {
+            Integer position = positions.get(product.getId());
+            if (position == null) {
+                added.add(product);
+                continue;
+            }
+            int chunk = position / CHUNK_SIZE;
+            if (product.equals(copy[chunk][position % CHUNK_SIZE])) {
+                continue;
+            }
+            if (copy == chunks) {
+                copy = chunks.clone();
+            }
+            if (copy[chunk] == chunks[chunk]) {
+                copy[chunk] = chunks[chunk].clone();
+            }
+            copy[chunk][position % CHUNK_SIZE] = product;
+        }
+        if (added.isEmpty()) {
+            return copy == chunks ? this : new CatalogSnapshot(version + 1, positions, copy, size);
+        }
+
+        int grownSize = size + added.size();
+        ProductDTO[][] grown = Arrays.copyOf(copy, chunkCount(grownSize));
+        Map<UUID, Integer> grownPositions = new HashMap<>(positions);
+        int index = size;
+        for (ProductDTO product : added) {
+            int chunk = index / CHUNK_SIZE;
+            int length = Math.min(CHUNK_SIZE, grownSize - chunk * CHUNK_SIZE);
+            // Los trozos tienen el tamaño justo: el último nunca se escribe en su sitio
+            if (grown[chunk] == null) {
+                grown[chunk] = new ProductDTO[length];
+            } else if (grown[chunk].length < length) {
+                grown[chunk] = Arrays.copyOf(grown[chunk], length);
+            }
+            grown[chunk][index % CHUNK_SIZE] = product;
+            grownPositions.put(product.getId(), index++);
+        }
+        return new CatalogSnapshot(version + 1, Collections.unmodifiableMap(grownPositions), grown, grownSize);
+    }
+
+    private static int chunkCount(int size) {
+        return (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    private final class View extends AbstractList<ProductDTO> implements RandomAccess {
+
+        @Override
+        public ProductDTO get(int index) {
+            Objects.checkIndex(index, size);
+            return chunks[index / CHUNK_SIZE][index % CHUNK_SIZE];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -4,37 +4,76 @@ import com.ecommerxo.api.model.Category;
 import com.ecommerxo.api.repository.CategoryRepository;
 import com.ecommerxo.api.dto.CategoryDTO;
 import com.ecommerxo.api.exception.ResourceNotFoundException;
+import jakarta.annotation.PostConstruct;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import lombok.RequiredArgsConstructor;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class CategoryService {
+
+    public static final String CACHE_NAME = "categories";
+
+    private static final String VERSION_SQL = "SELECT version FROM cache_versions WHERE cache_name = ?";
+    private static final String NEXT_VERSION_SQL =
+            "UPDATE cache_versions SET version = version + 1 WHERE cache_name = ? RETURNING version";
     
     private final CategoryRepository categoryRepository;
+    private final CacheManager cacheManager;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Versión del árbol de categorías para los ETag y las claves de cache. La fuente es
+    // cache_versions, común a todas las réplicas; aquí se guarda la última conocida para
+    // no consultar la base de datos en cada petición
+    private final AtomicLong version = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        syncVersion();
+    }
+
+    public String getCategoriesEtag() {
+        return "\"categories-" + version.get() + "\"";
+    }
+
+    // Forma parte de todas las claves: una carga que empezó antes de un cambio guarda su
+    // resultado con la versión anterior, que ya nadie consulta
+    public long getCacheVersion() {
+        return version.get();
+    }
 
+    // El árbol de categorías cambia muy poco: cualquier escritura cambia de versión
+    @Cacheable(value = "categories", key = "#root.target.cacheVersion + ':all'", sync = true)
     public List<CategoryDTO> getAllCategories() {
         return categoryRepository.findAll().stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
+    @Cacheable(value = "categories", key = "#root.target.cacheVersion + ':root'", sync = true)
     public List<CategoryDTO> getRootCategories() {
         return categoryRepository.findByParentIdIsNull().stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
+    @Cacheable(value = "categories", key = "#root.target.cacheVersion + ':children:' + #parentId", sync = true)
     public List<CategoryDTO> getSubcategories(UUID parentId) {
         return categoryRepository.findByParentId(parentId).stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
+    @Cacheable(value = "categories", key = "#root.target.cacheVersion + ':' + #id", sync = true)
     public CategoryDTO getCategory(UUID id) {
         Category category = findCategoryById(id);
         return convertToDTO(category);
@@ -43,6 +82,7 @@ public class CategoryService {
     public CategoryDTO createCategory(CategoryDTO categoryDTO) {
         Category category = convertToEntity(categoryDTO);
         category = categoryRepository.save(category);
+        categoriesChanged();
         return convertToDTO(category);
     }
 
@@ -50,6 +90,7 @@ public class CategoryService {
         Category category = findCategoryById(id);
         updateCategoryFromDTO(category, categoryDTO);
         category = categoryRepository.save(category);
+        categoriesChanged();
         return convertToDTO(category);
     }
 
@@ -61,6 +102,31 @@ public class CategoryService {
             throw new IllegalStateException("No se puede eliminar una categoría que tiene subcategorías");
         }
         categoryRepository.delete(category);
+        categoriesChanged();
+    }
+
+    /**
+     * Otra réplica cambió las categorías (o se perdieron avisos): releer la versión común
+     */
+    public void onRemoteChange(String key) {
+        syncVersion();
+    }
+
+    // Las lecturas siguientes usan las claves de la versión nueva; vaciar la cache solo
+    // libera las entradas de las anteriores y avisa al resto de réplicas
+    private void categoriesChanged() {
+        Long next = jdbcTemplate.queryForObject(NEXT_VERSION_SQL, Long.class, CACHE_NAME);
+        version.accumulateAndGet(next, Math::max);
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    // Nunca retrocede: un aviso atrasado no puede devolver claves que ya se dejaron de usar
+    private void syncVersion() {
+        Long current = jdbcTemplate.queryForObject(VERSION_SQL, Long.class, CACHE_NAME);
+        version.accumulateAndGet(current, Math::max);
     }
 
     private Category findCategoryById(UUID id) {
@@ -16,6 +16,7 @@ import java.util.List;
 import java.util.UUID;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Set;
 
 @Service
 public class InventoryService {
@@ -26,6 +27,12 @@ public class InventoryService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private ProductCatalog productCatalog;
+
     public List<Inventory> getInventoryHistory(UUID productId) {
         return inventoryRepository.findByProductIdOrderByCreatedAtDesc(productId);
     }
@@ -55,6 +62,8 @@ public class InventoryService {
 
         product.setStockQuantity(Math.max(0, newStock));
         productRepository.save(product);
+        stockLedger.onStockChanged(productId, type.equals("entrada") ? quantity : -quantity);
+        productCatalog.onProductsChanged(Set.of(productId));
     }
 
     public Map<String, Object> getInventoryAnalytics() {
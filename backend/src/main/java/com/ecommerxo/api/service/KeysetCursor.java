@@ -0,0 +1,95 @@
+package com.ecommerxo.api.service;
+
+import com.ecommerxo.api.dto.CursorPageDTO;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cursores opacos (Base64 URL-safe) con la clave de orden y el id de la última fila,
+ * para paginar por keyset: WHERE (clave, id) > (?, ?) sin OFFSET ni count(*).
+ */
+final class KeysetCursor {
+
+    static final int MAX_PAGE_SIZE = 100;
+
+    private static final Map<Class<?>, Function<String, ?>> PARSERS = Map.of(
+            UUID.class, UUID::fromString,
+            String.class, Function.identity(),
+            BigDecimal.class, BigDecimal::new,
+            LocalDateTime.class, LocalDateTime::parse);
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private KeysetCursor() {
+    }
+
+    // El id desempata en la misma dirección para que el índice (clave, id) sirva en ambos sentidos
+    static Sort sort(String property, Sort.Direction direction) {
+        return "id".equals(property) ? Sort.by(direction, "id") : Sort.by(direction, property, "id");
+    }
+
+    static int limit(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    static ScrollPosition decode(String cursor, Sort sort, Map<String, Class<?>> types) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+
+        Set<String> expected = sort.stream().map(Sort.Order::getProperty).collect(Collectors.toSet());
+        Map<String, Object> keys = new LinkedHashMap<>();
+        try {
+            String decoded = new String(DECODER.decode(cursor), StandardCharsets.UTF_8);
+            for (String pair : decoded.split("&")) {
+                int separator = pair.indexOf('=');
+                String property = URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8);
+                String value = URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+                keys.put(property, PARSERS.get(types.get(property)).apply(value));
+            }
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+        if (!keys.keySet().equals(expected)) {
+            throw new IllegalArgumentException("El cursor no corresponde al orden solicitado");
+        }
+        return ScrollPosition.forward(keys);
+    }
+
+    static <T, R> CursorPageDTO<R> page(Window<T> window, Function<T, R> mapper) {
+        CursorPageDTO<R> page = new CursorPageDTO<>();
+        page.setContent(window.getContent().stream().map(mapper).toList());
+        page.setSize(page.getContent().size());
+        if (window.hasNext() && !window.isEmpty()
+                && window.positionAt(window.size() - 1) instanceof KeysetScrollPosition position) {
+            page.setNextCursor(encode(position.getKeys()));
+        }
+        page.setHasNext(page.getNextCursor() != null);
+        return page;
+    }
+
+    private static String encode(Map<String, ?> keys) {
+        StringJoiner joiner = new StringJoiner("&");
+        keys.forEach((property, value) -> joiner.add(
+                URLEncoder.encode(property, StandardCharsets.UTF_8) + "="
+                        + URLEncoder.encode(String.valueOf(value), StandardCharsets.UTF_8)));
+        return ENCODER.encodeToString(joiner.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,333 @@
+package com.ecommerxo.api.service;
+
+import com.ecommerxo.api.dto.OrderDTO;
+import com.ecommerxo.api.dto.OrderItemDTO;
+import com.ecommerxo.api.exception.ResourceNotFoundException;
+import com.ecommerxo.api.exception.ServiceUnavailableException;
+import com.ecommerxo.api.model.Product;
+import com.ecommerxo.api.model.UuidV7Generator;
+import com.ecommerxo.api.repository.ProductRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Ingesta de órdenes por lotes (group commit).
+ *
+ * Las peticiones de {@code POST /api/orders} se validan en el hilo del request y se
+ * encolan; un único hilo escritor agrupa lo que haya en cola (hasta {@code batch-size}
+ * órdenes o {@code max-wait-ms}) y lo confirma en una sola transacción, con inserts
+ * JDBC en batch para {@code orders} y {@code order_items}. Así el coste del commit se
+ * reparte entre todas las órdenes del lote.
+ *
+ * Cada orden reserva su stock por separado: si una no tiene stock se rechaza sola y
+ * el resto del lote sigue adelante. El future de cada llamador se completa cuando el
+ * lote ya está confirmado. Quien espera más de {@code wait-timeout-ms} recibe 503, y al
+ * parar la aplicación se rechazan las órdenes que sigan en cola.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderIngestionPipeline {
+
+    private static final String INSERT_ORDER_SQL =
+            "INSERT INTO orders (id, user_id, status, total_amount, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO order_items (id, order_id, product_id, quantity, price_at_time, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductRepository productRepository;
+    private final StockReservationService stockReservationService;
+    private final StockLedger stockLedger;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.order-ingestion.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.order-ingestion.batch-size:64}")
+    private int batchSize;
+
+    @Value("${app.order-ingestion.max-wait-ms:5}")
+    private long maxWaitMs;
+
+    @Value("${app.order-ingestion.queue-capacity:4096}")
+    private int queueCapacity;
+
+    @Value("${app.order-ingestion.wait-timeout-ms:10000}")
+    private long waitTimeoutMs;
+
+    private BlockingQueue<OrderCommand> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    private Timer batchLatency;
+    private DistributionSummary batchSizes;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        batchLatency = Timer.builder("orders.ingestion.batch.latency")
+                .description("Tiempo de escritura y commit de cada lote de órdenes")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("orders.ingestion.batch.size")
+                .description("Órdenes por lote confirmado")
+                .register(meterRegistry);
+        Gauge.builder("orders.ingestion.queue.size", queue, BlockingQueue::size)
+                .register(meterRegistry);
+
+        running = true;
+        writer = new Thread(this::drainLoop, "order-ingestion");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (writer == null) {
+            return;
+        }
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (writer.isAlive()) {
+            writer.interrupt();
+        }
+        // Las órdenes que el escritor no llegó a tomar ya no se confirmarán
+        List<OrderCommand> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        pending.forEach(command -> command.result.completeExceptionally(unavailable()));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Encola la orden y devuelve un future que se completa cuando su lote se confirma.
+     */
+    public CompletableFuture<OrderDTO> submit(UUID userId, OrderDTO orderDTO) {
+        if (orderDTO.getItems() == null || orderDTO.getItems().isEmpty()) {
+            throw new IllegalStateException("La orden debe tener al menos un producto");
+        }
+        Map<UUID, Integer> quantities = new TreeMap<>();
+        for (OrderItemDTO itemDTO : orderDTO.getItems()) {
+            if (itemDTO.getProductId() == null || itemDTO.getQuantity() == null || itemDTO.getQuantity() <= 0) {
+                throw new IllegalStateException("Línea de orden inválida");
+            }
+            quantities.merge(itemDTO.getProductId(), itemDTO.getQuantity(), Integer::sum);
+        }
+
+        OrderCommand command = new OrderCommand(userId, orderDTO.getItems(), quantities);
+        if (!running || !queue.offer(command)) {
+            throw unavailable();
+        }
+        // stop() pudo vaciar la cola entre la comprobación y el offer
+        if (!running && queue.remove(command)) {
+            throw unavailable();
+        }
+        return command.result;
+    }
+
+    /**
+     * Encola la orden y espera a que su lote se confirme.
+     */
+    public OrderDTO submitAndWait(UUID userId, OrderDTO orderDTO) {
+        try {
+            return submit(userId, orderDTO).get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            // El lote puede confirmarse aún; el cliente debe comprobar sus órdenes antes de repetir
+            log.warn("Order for user {} not committed within {} ms", userId, waitTimeoutMs);
+            throw new ServiceUnavailableException(
+                    "El registro de la orden está tardando más de lo esperado, intente nuevamente");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("No se pudo registrar la orden", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Registro de la orden interrumpido", ex);
+        }
+    }
+
+    private static ServiceUnavailableException unavailable() {
+        return new ServiceUnavailableException("No se pueden aceptar más órdenes en este momento, intente nuevamente");
+    }
+
+    private void drainLoop() {
+        List<OrderCommand> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                OrderCommand first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - batch.size());
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                while (batch.size() < batchSize) {
+                    OrderCommand next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                commit(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                batch.forEach(command -> command.result.completeExceptionally(
+                        new IllegalStateException("Registro de la orden interrumpido")));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<OrderCommand> batch) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(batch));
+        } catch (RuntimeException ex) {
+            log.error("Order batch of {} failed", batch.size(), ex);
+            batch.forEach(command -> command.result.completeExceptionally(ex));
+            return;
+        } finally {
+            batchLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchSizes.record(batch.size());
+        }
+
+        for (OrderCommand command : batch) {
+            if (command.failure != null) {
+                command.result.completeExceptionally(command.failure);
+            } else {
+                command.result.complete(command.response);
+            }
+        }
+    }
+
+    private void write(List<OrderCommand> batch) {
+        Collection<UUID> productIds = batch.stream()
+                .flatMap(command -> command.quantities.keySet().stream())
+                .collect(Collectors.toCollection(TreeSet::new));
+        // Sin ledger, bloquear los productos del lote en orden de ID antes de descontar
+        List<Product> loaded = stockLedger.isEnabled()
+                ? productRepository.findAllById(productIds)
+                : productRepository.findAllByIdForUpdate(productIds);
+        Map<UUID, Product> products = loaded.stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        List<Object[]> orderArgs = new ArrayList<>();
+        List<Object[]> itemArgs = new ArrayList<>();
+        for (OrderCommand command : batch) {
+            command.failure = reserve(command, products).orElse(null);
+            if (command.failure != null) {
+                continue;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            OrderDTO order = new OrderDTO();
+            order.setId(UuidV7Generator.next());
+            order.setUserId(command.userId);
+            order.setStatus("PENDING");
+            order.setCreatedAt(now);
+            order.setUpdatedAt(now);
+
+            List<OrderItemDTO> items = new ArrayList<>();
+            BigDecimal totalAmount = BigDecimal.ZERO;
+            for (OrderItemDTO line : command.items) {
+                Product product = products.get(line.getProductId());
+
+                OrderItemDTO item = new OrderItemDTO();
+                item.setId(UuidV7Generator.next());
+                item.setOrderId(order.getId());
+                item.setProductId(product.getId());
+                item.setQuantity(line.getQuantity());
+                item.setPriceAtTime(product.getPrice());
+                items.add(item);
+
+                totalAmount = totalAmount.add(product.getPrice().multiply(BigDecimal.valueOf(line.getQuantity())));
+                itemArgs.add(new Object[]{item.getId(), order.getId(), item.getProductId(),
+                        item.getQuantity(), item.getPriceAtTime(), Timestamp.valueOf(now)});
+            }
+            order.setItems(items);
+            order.setTotalAmount(totalAmount);
+            orderArgs.add(new Object[]{order.getId(), order.getUserId(), order.getStatus(),
+                    totalAmount, Timestamp.valueOf(now), Timestamp.valueOf(now)});
+            command.response = order;
+        }
+
+        if (!orderArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ORDER_SQL, orderArgs);
+            jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, itemArgs);
+        }
+    }
+
+    private Optional<RuntimeException> reserve(OrderCommand command, Map<UUID, Product> products) {
+        if (!products.keySet().containsAll(command.quantities.keySet())) {
+            return Optional.of(new ResourceNotFoundException("Producto no encontrado"));
+        }
+        if (!stockLedger.isEnabled()) {
+            return stockReservationService.tryReserve(command.quantities);
+        }
+        try {
+            stockLedger.reserve(command.quantities);
+            return Optional.empty();
+        } catch (IllegalStateException | ResourceNotFoundException ex) {
+            return Optional.of(ex);
+        }
+    }
+
+    private static final class OrderCommand {
+        private final UUID userId;
+        private final List<OrderItemDTO> items;
+        private final Map<UUID, Integer> quantities;
+        private final CompletableFuture<OrderDTO> result = new CompletableFuture<>();
+
+        // Solo los toca el hilo escritor
+        private OrderDTO response;
+        private RuntimeException failure;
+
+        private OrderCommand(UUID userId, List<OrderItemDTO> items, Map<UUID, Integer> quantities) {
+            this.userId = userId;
+            this.items = items;
+            this.quantities = quantities;
+        }
+    }
+}
@@ -5,10 +5,14 @@ import com.ecommerxo.api.model.OrderItem;
 import com.ecommerxo.api.model.Product;
 import com.ecommerxo.api.repository.OrderRepository;
 import com.ecommerxo.api.repository.ProductRepository;
+import com.ecommerxo.api.dto.CursorPageDTO;
 import com.ecommerxo.api.dto.OrderDTO;
 import com.ecommerxo.api.dto.OrderItemDTO;
 import com.ecommerxo.api.exception.ResourceNotFoundException;
 import com.ecommerxo.api.exception.UnauthorizedException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -16,14 +20,12 @@ import lombok.RequiredArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
-
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,7 +34,8 @@ public class OrderService {
     
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
-    private final ProductService productService;
+    private final StockReservationService stockReservationService;
+    private final StockLedger stockLedger;
 
     @Transactional
     public OrderDTO createOrder(UUID userId, OrderDTO orderDTO) {
@@ -40,20 +43,26 @@ public class OrderService {
         order.setUserId(userId);
         order.setStatus("PENDING");
         
-        // Calcular el total y validar el stock
+        // Reservar stock con UPDATE condicionales (orden determinista por ID)
+        Map<UUID, Integer> quantities = new TreeMap<>();
+        for (OrderItemDTO itemDTO : orderDTO.getItems()) {
+            quantities.merge(itemDTO.getProductId(), itemDTO.getQuantity(), Integer::sum);
+        }
+        if (stockLedger.isEnabled()) {
+            stockLedger.reserve(quantities);
+        } else {
+            stockReservationService.reserve(quantities);
+        }
+        
+        // Cargar todos los productos de la orden en una sola consulta
+        Map<UUID, Product> products = resolveProducts(quantities.keySet());
+        
+        // Calcular el total
         List<OrderItem> items = new ArrayList<>();
         BigDecimal totalAmount = BigDecimal.ZERO;
         
         for (OrderItemDTO itemDTO : orderDTO.getItems()) {
-            Product product = productService.findProductById(itemDTO.getProductId());
-            
-            if (product.getStockQuantity() < itemDTO.getQuantity()) {
-                throw new IllegalStateException("Stock insuficiente para " + product.getName());
-            }
-            
-            // Actualizar stock
-            product.setStockQuantity(product.getStockQuantity() - itemDTO.getQuantity());
-            productRepository.save(product);
+            Product product = products.get(itemDTO.getProductId());
             
             OrderItem item = new OrderItem();
             item.setProductId(product.getId());
@@ -78,6 +87,17 @@ public class OrderService {
                 .collect(Collectors.toList());
     }
 
+    // Paginación por cursor sobre (createdAt, id), sin OFFSET ni count(*)
+    @Transactional(readOnly = true)
+    public CursorPageDTO<OrderDTO> scrollOrders(String cursor, int size, Sort.Direction direction) {
+        Sort sort = KeysetCursor.sort("createdAt", direction);
+        ScrollPosition position = KeysetCursor.decode(cursor, sort,
+                Map.of("id", UUID.class, "createdAt", LocalDateTime.class));
+        return KeysetCursor.page(
+                orderRepository.findAllBy(position, sort, Limit.of(KeysetCursor.limit(size))),
+                this::convertToDTO);
+    }
+
     public List<OrderDTO> getOrdersByUser(UUID userId) {
         return orderRepository.findByUserId(userId).stream()
                 .map(this::convertToDTO)
@@ -104,11 +124,12 @@ public class OrderService {
     public void deleteOrder(UUID orderId) {
         Order order = findOrderById(orderId);
         // Restaurar stock
+        Map<UUID, Integer> quantities = new TreeMap<>();
         for (OrderItem item : order.getItems()) {
-            Product product = productService.findProductById(item.getProductId());
-            product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
-            productRepository.save(product);
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
         }
+        stockReservationService.release(quantities);
+        quantities.forEach(stockLedger::onStockChanged);
         orderRepository.delete(order);
     }
 
@@ -145,6 +166,15 @@ public class OrderService {
         );
     }
 
+    private Map<UUID, Product> resolveProducts(Collection<UUID> productIds) {
+        Map<UUID, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        if (products.size() != productIds.size()) {
+            throw new ResourceNotFoundException("Producto no encontrado");
+        }
+        return products;
+    }
+
     private Order findOrderById(UUID id) {
         return orderRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Orden no encontrada"));
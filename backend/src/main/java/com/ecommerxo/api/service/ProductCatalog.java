@@ -0,0 +1,330 @@
+package com.ecommerxo.api.service;
+
+import com.ecommerxo.api.cache.SharedCacheStore;
+import com.ecommerxo.api.dto.ProductDTO;
+import com.ecommerxo.api.model.Product;
+import com.ecommerxo.api.repository.ProductRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Catálogo completo en memoria ({@link CatalogSnapshot}) para {@code GET /api/products}.
+ *
+ * Los cambios no publican el DTO que tenían antes del commit: tras el commit un
+ * único hilo vuelve a leer de la base de datos las filas afectadas, con el bloqueo
+ * de publicación tomado, así que una publicación posterior nunca deja una versión
+ * más vieja que otra anterior. El hilo de la petición no espera a esa lectura ni
+ * necesita una segunda conexión mientras aún tiene la de su transacción.
+ *
+ * Así se recogen igual los cambios por JPA, las reservas y liberaciones por SQL, el
+ * flush del {@link StockLedger} y los movimientos de inventario. Los IDs cambiados
+ * se acumulan en un conjunto pendiente y el hilo los relee todos de una vez, con
+ * una sola versión nueva: con muchos checkouts la cola no crece con cada orden, sino
+ * que cada lectura recoge todo lo confirmado mientras se hacía la anterior. Los IDs
+ * publicados mientras se carga la instantánea se releen al terminar la carga, y una
+ * reconstrucción periódica corrige cualquier cambio que no haya pasado por aquí
+ * (SQL manual, otra aplicación sobre la misma base).
+ *
+ * Con la cache compartida activada, los IDs cambiados se avisan también al resto de
+ * réplicas por el canal de {@link SharedCacheStore} (el NOTIFY se confirma con la
+ * transacción del cambio), y cada una relee esas filas en su propia instantánea.
+ *
+ * Las entradas de la cache "products" de los IDs cambiados en esta réplica se
+ * desalojan en el mismo hilo, después del commit: las reservas y el flush del ledger
+ * cambian el stock por SQL y sin desalojarlas {@code GET /api/products/{id}} seguiría
+ * sirviendo el stock anterior. Con cache compartida, el desalojo avisa a las demás
+ * réplicas.
+ */
+@Component
+@Slf4j
+public class ProductCatalog {
+
+    /**
+     * Nombre con el que se avisan los cambios del catálogo en el canal de invalidación
+     */
+    public static final String INVALIDATION_NAME = "catalog";
+
+    // IDs por aviso: el payload de NOTIFY no admite más de 8000 bytes
+    private static final int IDS_PER_NOTIFICATION = 100;
+
+    private final ProductRepository productRepository;
+    private final CacheManager cacheManager;
+    // null sin cache compartida entre réplicas
+    private final SharedCacheStore sharedCacheStore;
+    private final TransactionTemplate readTransaction;
+
+    // Serializa cargas y reconstrucciones; los lectores nunca lo toman
+    private final Object loadLock = new Object();
+    // Protege la publicación de cambios y la lista de IDs cambiados durante una carga
+    private final Object publishLock = new Object();
+    private volatile CatalogSnapshot snapshot;
+    private Set<UUID> changedDuringLoad;
+    // IDs confirmados que el hilo de publicación aún no ha releído (como mucho uno por
+    // producto) y los que además hay que desalojar de la cache "products"; en la cola
+    // del hilo nunca hay más de una tarea de publicación. Protegidos por pendingLock.
+    private final Object pendingLock = new Object();
+    private Set<UUID> pendingPublish = new HashSet<>();
+    private Set<UUID> pendingEvict = new HashSet<>();
+    private boolean drainQueued;
+    private final ExecutorService publisher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // La versión de la instantánea vuelve a empezar en cada arranque; el instante
+    // de arranque distingue los ETag de un proceso y del siguiente
+    private final long epoch = System.currentTimeMillis();
+
+    public ProductCatalog(ProductRepository productRepository, PlatformTransactionManager transactionManager,
+                          CacheManager cacheManager, ObjectProvider<SharedCacheStore> sharedCacheStore) {
+        this.productRepository = productRepository;
+        this.cacheManager = cacheManager;
+        this.sharedCacheStore = sharedCacheStore.getIfAvailable();
+        // Transacción propia: quien carga puede estar dentro de otra cuyo contexto de
+        // persistencia no vería lo que se actualizó por SQL
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    public List<ProductDTO> getAllProducts() {
+        return snapshot().list();
+    }
+
+    // ETag del catálogo completo: sale de la instantánea en memoria, sin consultar la base de datos
+    public String getEtag() {
+        return "\"catalog-" + epoch + "-" + snapshot().version() + "\"";
+    }
+
+    private CatalogSnapshot snapshot() {
+        CatalogSnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (loadLock) {
+            if (snapshot == null) {
+                load();
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Publicar los productos creados, modificados, borrados o con stock cambiado.
+     * Con transacción activa se releen tras el commit, junto con los de las demás
+     * transacciones confirmadas mientras tanto.
+     */
+    public void onProductsChanged(Collection<UUID> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Set<UUID> changed = Set.copyOf(productIds);
+            notifyReplicas(changed);
+            enqueue(changed, true);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<UUID> pending = (Set<UUID>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<UUID> changed = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, changed);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    notifyReplicas(changed);
+                }
+
+                @Override
+                public void afterCommit() {
+                    enqueue(changed, true);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ProductCatalog.this);
+                }
+            });
+            pending = changed;
+        }
+        pending.addAll(productIds);
+    }
+
+    /**
+     * Aviso de otra réplica: {@code key} con los IDs cambiados separados por comas, o
+     * vacío si hay que releer todo el catálogo (al reconectar se pierden los avisos
+     * de ese intervalo)
+     */
+    public void onRemoteChange(String key) {
+        if (key.isEmpty()) {
+            publisher.execute(this::rebuild);
+            return;
+        }
+        Set<UUID> changed = Arrays.stream(key.split(","))
+                .map(UUID::fromString)
+                .collect(Collectors.toSet());
+        enqueue(changed, false);
+    }
+
+    /**
+     * Espera a que se publiquen los cambios ya confirmados (para los tests)
+     */
+    void awaitPublished() throws InterruptedException, ExecutionException {
+        publisher.submit(() -> { }).get();
+    }
+
+    @PreDestroy
+    void stop() {
+        publisher.shutdownNow();
+    }
+
+    /**
+     * Red de seguridad: vuelve a leer el catálogo completo si ya se cargó. La
+     * versión solo sube si el contenido cambió, para no invalidar ETag sin motivo.
+     */
+    @Scheduled(fixedDelayString = "${app.catalog.rebuild-interval-ms:300000}",
+            initialDelayString = "${app.catalog.rebuild-interval-ms:300000}")
+    public void rebuild() {
+        synchronized (loadLock) {
+            if (snapshot != null) {
+                load();
+            }
+        }
+    }
+
+    private void load() {
+        synchronized (publishLock) {
+            changedDuringLoad = new HashSet<>();
+        }
+        List<ProductDTO> products = readTransaction.execute(status -> productRepository.findAll().stream()
+                .map(ProductService::convertToDTO)
+                .collect(Collectors.toList()));
+        synchronized (publishLock) {
+            CatalogSnapshot current = snapshot;
+            CatalogSnapshot loaded = CatalogSnapshot.of(current != null ? current.version() + 1 : 1, products);
+            // Un cambio confirmado durante la lectura puede no estar en ella
+            loaded = apply(loaded, changedDuringLoad);
+            changedDuringLoad = null;
+            if (current != null && current.sameProducts(loaded)) {
+                return;
+            }
+            if (current != null) {
+                log.info("Catalog snapshot rebuilt with changes not published incrementally ({} products)",
+                        loaded.size());
+            }
+            snapshot = loaded;
+        }
+    }
+
+    private void notifyReplicas(Set<UUID> productIds) {
+        if (sharedCacheStore == null) {
+            return;
+        }
+        List<String> ids = productIds.stream().map(UUID::toString).toList();
+        for (int from = 0; from < ids.size(); from += IDS_PER_NOTIFICATION) {
+            List<String> chunk = ids.subList(from, Math.min(from + IDS_PER_NOTIFICATION, ids.size()));
+            sharedCacheStore.publishInvalidation(INVALIDATION_NAME, String.join(",", chunk));
+        }
+    }
+
+    private void enqueue(Set<UUID> productIds, boolean evict) {
+        synchronized (pendingLock) {
+            pendingPublish.addAll(productIds);
+            if (evict) {
+                pendingEvict.addAll(productIds);
+            }
+            if (drainQueued) {
+                return;
+            }
+            drainQueued = true;
+        }
+        publisher.execute(this::drain);
+    }
+
+    private void drain() {
+        Set<UUID> publish;
+        Set<UUID> evict;
+        synchronized (pendingLock) {
+            publish = pendingPublish;
+            evict = pendingEvict;
+            pendingPublish = new HashSet<>();
+            pendingEvict = new HashSet<>();
+            drainQueued = false;
+        }
+        evictCached(evict);
+        publishSafely(publish);
+    }
+
+    // Fuera de la transacción del cambio: con TwoLevelCache el desalojo escribe en L2 y
+    // avisa por su cuenta, así que los avisos de otras réplicas no pasan por aquí
+    private void evictCached(Set<UUID> productIds) {
+        Cache products = cacheManager.getCache("products");
+        if (products == null) {
+            return;
+        }
+        try {
+            productIds.forEach(products::evict);
+        } catch (RuntimeException ex) {
+            // La entrada caduca igualmente con el expireAfterWrite de la cache
+            log.warn("Could not evict {} changed products from the products cache", productIds.size(), ex);
+        }
+    }
+
+    private void publishSafely(Set<UUID> productIds) {
+        try {
+            publish(productIds);
+        } catch (RuntimeException ex) {
+            // El cambio ya está confirmado; la próxima reconstrucción lo recoge
+            log.warn("Could not publish {} changed products to the catalog snapshot", productIds.size(), ex);
+        }
+    }
+
+    private void publish(Set<UUID> productIds) {
+        synchronized (publishLock) {
+            if (changedDuringLoad != null) {
+                changedDuringLoad.addAll(productIds);
+            }
+            CatalogSnapshot current = snapshot;
+            if (current != null) {
+                snapshot = apply(current, productIds);
+            }
+        }
+    }
+
+    // Relee las filas con publishLock tomado: lo que se aplica nunca es anterior a lo ya publicado
+    private CatalogSnapshot apply(CatalogSnapshot current, Set<UUID> productIds) {
+        if (productIds.isEmpty()) {
+            return current;
+        }
+        Map<UUID, ProductDTO> reloaded = readTransaction.execute(status ->
+                productRepository.findAllById(productIds).stream()
+                        .collect(Collectors.toMap(Product::getId, ProductService::convertToDTO)));
+        Set<UUID> removed = productIds.stream()
+                .filter(id -> !reloaded.containsKey(id))
+                .collect(Collectors.toSet());
+        return current.with(reloaded.values(), removed);
+    }
+}
@@ -3,20 +3,32 @@ package com.ecommerxo.api.service;
 import com.ecommerxo.api.model.Product;
 import com.ecommerxo.api.repository.ProductRepository;
 import com.ecommerxo.api.repository.InventoryRepository;
+import com.ecommerxo.api.dto.CursorPageDTO;
 import com.ecommerxo.api.dto.ProductDTO;
+import com.ecommerxo.api.dto.ProductSortField;
 import com.ecommerxo.api.model.Inventory;
 import com.ecommerxo.api.exception.ResourceNotFoundException;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.RequiredArgsConstructor;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
@@ -24,52 +36,113 @@ import java.util.stream.Collectors;
 @Service
 @RequiredArgsConstructor
 public class ProductService {
+
+    private static final Map<String, Class<?>> SCROLL_KEYS = Map.of(
+            "id", UUID.class,
+            "name", String.class,
+            "price", BigDecimal.class,
+            "createdAt", LocalDateTime.class);
     
     private final ProductRepository productRepository;
     private final InventoryRepository inventoryRepository;
+    private final StockLedger stockLedger;
+    private final CacheManager cacheManager;
+    private final ProductCatalog productCatalog;
 
-    @Cacheable(value = "products", key = "'all'")
     public List<ProductDTO> getAllProducts() {
-        return productRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return productCatalog.getAllProducts();
+    }
+
+    // ETag del catálogo completo: sale de la instantánea en memoria, sin consultar la base de datos
+    public String getCatalogEtag() {
+        return productCatalog.getEtag();
+    }
+
+    // ETag de un producto: su updatedAt y el stock, que las reservas cambian por SQL sin
+    // tocar updatedAt
+    public String getProductEtag(ProductDTO product) {
+        return "\"" + product.getId() + "-" + product.getUpdatedAt() + "-" + product.getStockQuantity() + "\"";
     }
 
     // Método paginado optimizado
     public Page<ProductDTO> getAllProductsPaginated(Pageable pageable) {
         return productRepository.findAll(pageable)
-                .map(this::convertToDTO);
+                .map(ProductService::convertToDTO);
+    }
+
+    // Paginación por cursor: sin OFFSET ni count(*), mismo coste en cualquier página
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ProductDTO> scrollProducts(String cursor, int size, String sortBy, Sort.Direction direction) {
+        Sort sort = ProductSortField.fromProperty(sortBy).sort(direction);
+        ScrollPosition position = KeysetCursor.decode(cursor, sort, SCROLL_KEYS);
+        return KeysetCursor.page(
+                productRepository.findAllBy(position, sort, Limit.of(KeysetCursor.limit(size))),
+                ProductService::convertToDTO);
     }
 
-    @Cacheable(value = "products", key = "#id")
+    // sync = true: los fallos concurrentes de cache para un mismo id comparten una sola carga.
+    // Los ids inexistentes se recuerdan un momento en "productsNotFound" para que sondear UUIDs
+    // aleatorios no llegue a la base de datos (los ids nuevos son UUID v7 generados aquí); con
+    // cache compartida, TwoLevelCache tampoco los busca en L2.
+    @Cacheable(value = "products", key = "#id", sync = true)
     public ProductDTO getProduct(UUID id) {
+        Cache notFound = cacheManager.getCache("productsNotFound");
+        if (notFound != null && notFound.get(id) != null) {
+            throw new ResourceNotFoundException("Producto no encontrado");
+        }
+        try {
+            return convertToDTO(findProductById(id));
+        } catch (ResourceNotFoundException ex) {
+            if (notFound != null) {
+                notFound.put(id, Boolean.TRUE);
+            }
+            throw ex;
+        }
+    }
+
+    // Para el calentamiento de caches al arrancar
+    @Transactional(readOnly = true)
+    public List<UUID> getTopSellingProductIds(int limit) {
+        return productRepository.findTopSellingProductIds(Limit.of(limit));
+    }
+
+    // Sin cache: lo usa el loader de la cache "products" para refrescar entradas
+    @Transactional(readOnly = true)
+    public ProductDTO loadProduct(UUID id) {
         return convertToDTO(findProductById(id));
     }
 
     @Transactional
     @CachePut(value = "products", key = "#result.id")
-    @CacheEvict(value = "products", key = "'all'")
+    @CacheEvict(value = "lowStock", allEntries = true)
     public ProductDTO createProduct(ProductDTO productDTO) {
         Product product = convertToEntity(productDTO);
-        product = productRepository.save(product);
+        product = productRepository.saveAndFlush(product);
+        productCatalog.onProductsChanged(Set.of(product.getId()));
         return convertToDTO(product);
     }
 
     @Transactional
     @CachePut(value = "products", key = "#id")
-    @CacheEvict(value = "products", key = "'all'")
+    @CacheEvict(value = "lowStock", allEntries = true)
     public ProductDTO updateProduct(UUID id, ProductDTO productDTO) {
         Product product = findProductById(id);
         updateProductFromDTO(product, productDTO);
-        product = productRepository.save(product);
+        // Flush antes de convertir: @PreUpdate fija updatedAt, del que depende el ETag del DTO de @CachePut
+        product = productRepository.saveAndFlush(product);
+        productCatalog.onProductsChanged(Set.of(id));
         return convertToDTO(product);
     }
 
     @Transactional
-    @CacheEvict(value = "products", allEntries = true)
+    @Caching(evict = {
+            @CacheEvict(value = "products", key = "#id"),
+            @CacheEvict(value = "lowStock", allEntries = true)
+    })
     public void deleteProduct(UUID id) {
         Product product = findProductById(id);
         productRepository.delete(product);
+        productCatalog.onProductsChanged(Set.of(id));
     }
 
     @Async
@@ -80,20 +153,22 @@ public class ProductService {
         return CompletableFuture.completedFuture(null);
     }
 
-    @Cacheable(value = "products", key = "'lowStock'")
+    @Cacheable(value = "lowStock", key = "'all'", sync = true)
     public List<ProductDTO> getLowStockProducts() {
         return productRepository.findByStockQuantityLessThanMinStockLevel().stream()
-                .map(this::convertToDTO)
+                .map(ProductService::convertToDTO)
                 .collect(Collectors.toList());
     }
 
     public List<ProductDTO> getProductsByCategory(UUID categoryId) {
         return productRepository.findByCategoryId(categoryId).stream()
-                .map(this::convertToDTO)
+                .map(ProductService::convertToDTO)
                 .collect(Collectors.toList());
     }
 
     @Transactional
+    @CachePut(value = "products", key = "#id")
+    @CacheEvict(value = "lowStock", allEntries = true)
     public ProductDTO updateStock(UUID id, int quantity, String reason) {
         Product product = findProductById(id);
         
@@ -106,7 +181,9 @@ public class ProductService {
         inventoryRepository.save(inventory);
         
         product.setStockQuantity(product.getStockQuantity() + quantity);
-        product = productRepository.save(product);
+        product = productRepository.saveAndFlush(product);
+        stockLedger.onStockChanged(id, quantity);
+        productCatalog.onProductsChanged(Set.of(id));
         
         return convertToDTO(product);
     }
@@ -124,7 +201,7 @@ public class ProductService {
                 .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado"));
     }
 
-    private ProductDTO convertToDTO(Product product) {
+    static ProductDTO convertToDTO(Product product) {
         ProductDTO dto = new ProductDTO();
         dto.setId(product.getId());
         dto.setName(product.getName());
@@ -0,0 +1,182 @@
+package com.ecommerxo.api.service;
+
+import com.ecommerxo.api.dto.CategoryDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calentamiento de caches y del JIT tras cada despliegue.
+ *
+ * Se ejecuta como ApplicationRunner: Spring Boot no pasa el readiness a
+ * ACCEPTING_TRAFFIC hasta que terminan los runners, así que el balanceador no
+ * envía tráfico mientras tanto. Precarga los productos más vendidos y el árbol de
+ * categorías y después reproduce contra el propio servidor una muestra de
+ * peticiones de lectura, que recorren filtros, controladores y serialización JSON.
+ *
+ * Expone en Actuator {@code app.warmup.duration} y {@code app.cache.fill}
+ * (entradas / tamaño máximo, por cache).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StartupWarmup implements ApplicationRunner {
+
+    private static final String PRODUCT_ID_PLACEHOLDER = "{productId}";
+
+    private final ProductService productService;
+    private final CategoryService categoryService;
+    private final CacheManager cacheManager;
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+
+    @Value("${app.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.warmup.top-products:500}")
+    private int topProducts;
+
+    @Value("${app.warmup.requests:classpath:warmup/read-requests.txt}")
+    private Resource requests;
+
+    @Value("${app.warmup.iterations:3}")
+    private int iterations;
+
+    private volatile long durationMillis;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        registerCacheFillGauges();
+        TimeGauge.builder("app.warmup.duration", this, TimeUnit.MILLISECONDS, warmup -> warmup.durationMillis)
+                .description("Duración del calentamiento de arranque")
+                .register(meterRegistry);
+        if (!enabled) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        // Un fallo aquí no debe impedir arrancar: solo se pierde el calentamiento
+        try {
+            List<UUID> productIds = preloadProducts();
+            preloadCategories();
+            replayRequests(productIds);
+        } catch (RuntimeException ex) {
+            log.warn("Startup warm-up aborted: {}", ex.getMessage());
+        }
+        durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("Startup warm-up finished in {} ms", durationMillis);
+    }
+
+    private List<UUID> preloadProducts() {
+        List<UUID> ids = productService.getTopSellingProductIds(topProducts);
+        for (UUID id : ids) {
+            try {
+                productService.getProduct(id);
+            } catch (RuntimeException ex) {
+                // Producto vendido pero ya eliminado
+                log.debug("Skipping product {} during warm-up: {}", id, ex.getMessage());
+            }
+        }
+        productService.getAllProducts();
+        return ids;
+    }
+
+    private void preloadCategories() {
+        categoryService.getAllCategories();
+        Deque<CategoryDTO> pending = new ArrayDeque<>(categoryService.getRootCategories());
+        while (!pending.isEmpty()) {
+            CategoryDTO category = pending.pop();
+            categoryService.getCategory(category.getId());
+            pending.addAll(categoryService.getSubcategories(category.getId()));
+        }
+    }
+
+    /**
+     * Cada línea del fichero es una ruta GET (con query string si hace falta);
+     * {@code {productId}} se sustituye por los productos más vendidos en turno.
+     */
+    private void replayRequests(List<UUID> productIds) {
+        if (!requests.exists() || iterations <= 0) {
+            return;
+        }
+        List<String> paths;
+        try {
+            paths = requests.getContentAsString(StandardCharsets.UTF_8).lines()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .toList();
+        } catch (IOException ex) {
+            log.warn("Could not read warm-up requests: {}", ex.getMessage());
+            return;
+        }
+
+        String baseUrl = "http://localhost:" + environment.getProperty("local.server.port", "8080");
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        int sent = 0;
+        int failed = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (String path : paths) {
+                if (path.contains(PRODUCT_ID_PLACEHOLDER)) {
+                    if (productIds.isEmpty()) {
+                        continue;
+                    }
+                    path = path.replace(PRODUCT_ID_PLACEHOLDER, productIds.get(sent % productIds.size()).toString());
+                }
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                        .timeout(Duration.ofSeconds(10))
+                        .GET()
+                        .build();
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() >= 500) {
+                        failed++;
+                    }
+                } catch (IOException ex) {
+                    failed++;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                sent++;
+            }
+        }
+        log.info("Replayed {} warm-up requests ({} failed)", sent, failed);
+    }
+
+    private void registerCacheFillGauges() {
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache) {
+                nativeCache.policy().eviction().ifPresent(eviction ->
+                        Gauge.builder("app.cache.fill", nativeCache,
+                                        c -> (double) c.estimatedSize() / eviction.getMaximum())
+                                .description("Entradas de la cache respecto a su tamaño máximo")
+                                .tag("cache", name)
+                                .register(meterRegistry));
+            }
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.ecommerxo.api.service;
+
+import com.ecommerxo.api.exception.ResourceNotFoundException;
+import com.ecommerxo.api.model.UuidV7Generator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Ledger de reservas de stock en memoria para productos con mucha concurrencia.
+ *
+ * Cada producto tiene un contador de unidades disponibles repartido en varias
+ * franjas (stripes) que se descuentan con CAS, de modo que los checkouts del mismo
+ * producto no compiten por el bloqueo de la fila en {@code products}. Cada reserva
+ * admitida se registra en {@code inventory} con tipo {@code reserva} dentro de la
+ * transacción de la orden (solo INSERT, sin bloqueos de fila compartidos), y un
+ * flush periódico aplica las reservas pendientes a {@code products.stock_quantity}
+ * en una sola sentencia, marcándolas como {@code salida}.
+ *
+ * La tabla {@code inventory} es el diario: si la instancia cae con reservas sin
+ * aplicar, el flush de arranque las aplica, y los contadores se inicializan con
+ * {@code stock_quantity} menos las reservas aún pendientes. Un ajuste de stock que
+ * se confirma mientras se inicializa el contador obliga a repetir la lectura, porque
+ * no se sabe si ésta ya lo incluía.
+ *
+ * Los contadores son locales a cada instancia; con varias réplicas el ledger solo
+ * debe habilitarse si el stock de los productos calientes se reparte entre ellas.
+ */
+@Component
+@RequiredArgsConstructor
+public class StockLedger {
+
+    static final String RESERVATION_TYPE = "reserva";
+
+    private static final String JOURNAL_SQL =
+            "INSERT INTO inventory (id, product_id, quantity, type, reason, created_at) " +
+            "VALUES (?, ?, ?, '" + RESERVATION_TYPE + "', 'Reserva de orden', CURRENT_TIMESTAMP)";
+
+    private static final String AVAILABLE_SQL =
+            "SELECT p.stock_quantity - COALESCE((SELECT SUM(i.quantity) FROM inventory i " +
+            "WHERE i.product_id = p.id AND i.type = '" + RESERVATION_TYPE + "'), 0) " +
+            "FROM products p WHERE p.id = ?";
+
+    private static final String FLUSH_SQL =
+            "WITH applied AS (" +
+            "  UPDATE inventory SET type = 'salida' WHERE type = '" + RESERVATION_TYPE + "' " +
+            "  RETURNING product_id, quantity" +
+            "), totals AS (" +
+            "  SELECT product_id, SUM(quantity) AS quantity FROM applied GROUP BY product_id" +
+            ") " +
+            "UPDATE products p SET stock_quantity = p.stock_quantity - t.quantity, updated_at = CURRENT_TIMESTAMP " +
+            "FROM totals t WHERE p.id = t.product_id RETURNING p.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductCatalog productCatalog;
+
+    private final Map<UUID, ProductCounter> counters = new ConcurrentHashMap<>();
+
+    @Value("${app.stock-ledger.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.stock-ledger.stripes:8}")
+    private int stripes;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Admite o rechaza en memoria las líneas de una orden y registra las reservas en
+     * el diario. Debe llamarse dentro de la transacción de la orden: si ésta hace
+     * rollback las unidades vuelven al contador. Los contadores de todas las líneas
+     * se resuelven antes de tomar nada, así que un producto inexistente rechaza la
+     * orden sin dejar unidades tomadas de las demás.
+     */
+    public void reserve(Map<UUID, Integer> quantitiesByProduct) {
+        Map<UUID, StripedStock> stocks = new TreeMap<>();
+        quantitiesByProduct.keySet().forEach(productId -> stocks.put(productId, counter(productId)));
+
+        Map<UUID, Integer> acquired = new TreeMap<>();
+        boolean registered = false;
+        try {
+            for (Map.Entry<UUID, StripedStock> line : stocks.entrySet()) {
+                int quantity = quantitiesByProduct.get(line.getKey());
+                if (!line.getValue().tryAcquire(quantity)) {
+                    throw new IllegalStateException("Stock insuficiente para el producto " + line.getKey());
+                }
+                acquired.put(line.getKey(), quantity);
+            }
+
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        acquired.forEach((productId, quantity) -> stocks.get(productId).release(quantity));
+                    }
+                }
+            });
+            registered = true;
+        } finally {
+            if (!registered) {
+                acquired.forEach((productId, quantity) -> stocks.get(productId).release(quantity));
+            }
+        }
+
+        List<Object[]> batchArgs = new ArrayList<>();
+        acquired.forEach((productId, quantity) ->
+                batchArgs.add(new Object[]{UuidV7Generator.next(), productId, quantity}));
+        jdbcTemplate.batchUpdate(JOURNAL_SQL, batchArgs);
+    }
+
+    /**
+     * Refleja en los contadores un cambio de stock hecho fuera del ledger
+     * (ajustes de inventario, reposiciones), una vez confirmada la transacción.
+     * Quien llama ya comprobó que el producto existe.
+     */
+    public void onStockChanged(UUID productId, int delta) {
+        if (!enabled || delta == 0) {
+            return;
+        }
+        ProductCounter counter = counters.computeIfAbsent(productId, id -> new ProductCounter());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            counter.applied(delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean committing;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                // Antes del COMMIT: una inicialización que lea la fila a partir de aquí
+                // puede ver ya el cambio, así que tendrá que esperar a saber si se aplicó
+                committing = true;
+                counter.committing();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (committing) {
+                    counter.completed(status == STATUS_COMMITTED ? delta : 0);
+                }
+            }
+        });
+    }
+
+    /**
+     * Aplica a {@code products} las reservas confirmadas desde el último flush y
+     * publica el nuevo stock en el {@link ProductCatalog}.
+     */
+    @Scheduled(fixedDelayString = "${app.stock-ledger.flush-interval-ms:500}")
+    public void flush() {
+        if (enabled) {
+            productCatalog.onProductsChanged(jdbcTemplate.queryForList(FLUSH_SQL, UUID.class));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        // Reservas que quedaron en el diario sin aplicar (p. ej. tras una caída)
+        flush();
+    }
+
+    /**
+     * Número de productos con contador (para los tests)
+     */
+    int trackedProducts() {
+        return counters.size();
+    }
+
+    private StripedStock counter(UUID productId) {
+        ProductCounter counter = counters.computeIfAbsent(productId, id -> new ProductCounter());
+        StripedStock stock = counter.stock;
+        while (stock == null) {
+            long changes = counter.changesIfIdle();
+            if (changes < 0) {
+                // Hay un ajuste confirmándose; la lectura no sabría si incluirlo
+                Thread.yield();
+                continue;
+            }
+            Integer available = loadAvailable(productId);
+            if (available == null) {
+                // Sin fila no hay ajustes que seguir: IDs inventados no dejan contadores
+                counters.remove(productId, counter);
+                throw new ResourceNotFoundException("Producto no encontrado");
+            }
+            stock = counter.seed(changes, stripes, available);
+        }
+        return stock;
+    }
+
+    private Integer loadAvailable(UUID productId) {
+        try {
+            Integer available = jdbcTemplate.queryForObject(AVAILABLE_SQL, Integer.class, productId);
+            return available != null ? Math.max(0, available) : 0;
+        } catch (EmptyResultDataAccessException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Contador de un producto y los ajustes externos que le afectan. Se crea vacío;
+     * la inicialización desde la base de datos solo se publica si ningún ajuste se
+     * confirmó (ni estaba confirmándose) mientras se leía, y a partir de entonces
+     * los ajustes se aplican directamente a las franjas.
+     */
+    static final class ProductCounter {
+
+        volatile StripedStock stock;
+        private int committing;
+        private long changes;
+
+        synchronized void committing() {
+            committing++;
+        }
+
+        synchronized void completed(int delta) {
+            committing--;
+            if (delta != 0) {
+                applied(delta);
+            }
+        }
+
+        synchronized void applied(int delta) {
+            changes++;
+            if (stock != null) {
+                stock.adjust(delta);
+            }
+        }
+
+        /**
+         * Número de ajustes aplicados hasta ahora, o -1 si hay alguno confirmándose
+         */
+        synchronized long changesIfIdle() {
+            return committing > 0 ? -1 : changes;
+        }
+
+        /**
+         * Publica el contador leído si desde {@code changesBefore} no hubo ajustes;
+         * devuelve null si hay que volver a leer
+         */
+        synchronized StripedStock seed(long changesBefore, int stripes, int available) {
+            if (stock == null && committing == 0 && changes == changesBefore) {
+                stock = new StripedStock(stripes, available);
+            }
+            return stock;
+        }
+    }
+
+    /**
+     * Unidades disponibles repartidas en franjas con CAS. Cada hilo empieza por una
+     * franja distinta, así los descuentos concurrentes rara vez tocan la misma celda.
+     * Cerca del agotamiento una reserva puede rechazarse mientras otra tiene unidades
+     * tomadas a medias; nunca se admiten más unidades de las disponibles.
+     */
+    static final class StripedStock {
+
+        // Separación entre celdas para evitar false sharing (64 bytes / 4 bytes por int)
+        private static final int PADDING = 16;
+
+        private final int stripes;
+        private final AtomicIntegerArray cells;
+
+        StripedStock(int stripes, int available) {
+            this.stripes = Math.max(1, stripes);
+            this.cells = new AtomicIntegerArray(this.stripes * PADDING);
+            for (int i = 0; i < this.stripes; i++) {
+                cells.set(i * PADDING, available / this.stripes + (i < available % this.stripes ? 1 : 0));
+            }
+        }
+
+        boolean tryAcquire(int quantity) {
+            int taken = take(quantity);
+            if (taken < quantity) {
+                release(taken);
+                return false;
+            }
+            return true;
+        }
+
+        void release(int quantity) {
+            if (quantity > 0) {
+                cells.addAndGet(ThreadLocalRandom.current().nextInt(stripes) * PADDING, quantity);
+            }
+        }
+
+        void adjust(int delta) {
+            if (delta > 0) {
+                release(delta);
+            } else {
+                // Si ya no quedan tantas unidades libres, el resto está reservado por órdenes en curso
+                take(-delta);
+            }
+        }
+
+        private int take(int quantity) {
+            int start = ThreadLocalRandom.current().nextInt(stripes);
+            int taken = 0;
+            for (int n = 0; n < stripes && taken < quantity; n++) {
+                int index = ((start + n) % stripes) * PADDING;
+                while (true) {
+                    int current = cells.get(index);
+                    int take = Math.min(current, quantity - taken);
+                    if (take <= 0) {
+                        break;
+                    }
+                    if (cells.compareAndSet(index, current, current - take)) {
+                        taken += take;
+                        break;
+                    }
+                }
+            }
+            return taken;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.ecommerxo.api.service;
+
+import com.ecommerxo.api.exception.ResourceNotFoundException;
+import com.ecommerxo.api.repository.ProductRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Reserva de stock con UPDATE condicionales de una sola sentencia, enviados
+ * como un único batch JDBC. Las líneas se aplican en orden de ID de producto
+ * para que checkouts concurrentes bloqueen las filas siempre en el mismo orden.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
+public class StockReservationService {
+
+    private static final String RESERVE_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?";
+
+    private static final String RELEASE_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductRepository productRepository;
+    private final ProductCatalog productCatalog;
+
+    public void reserve(Map<UUID, Integer> quantitiesByProduct) {
+        Optional<RuntimeException> failure = tryReserve(quantitiesByProduct);
+        if (failure.isPresent()) {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * Como {@link #reserve}, pero si alguna línea no puede reservarse repone las
+     * que sí se descontaron y devuelve el error sin lanzarlo, de modo que la
+     * transacción (compartida por varias órdenes) sigue siendo válida.
+     */
+    public Optional<RuntimeException> tryReserve(Map<UUID, Integer> quantitiesByProduct) {
+        Map<UUID, Integer> lines = new TreeMap<>(quantitiesByProduct);
+        List<UUID> productIds = new ArrayList<>();
+        List<Object[]> batchArgs = new ArrayList<>();
+        lines.forEach((productId, quantity) -> {
+            productIds.add(productId);
+            batchArgs.add(new Object[]{quantity, productId, quantity});
+        });
+
+        int[] updated = jdbcTemplate.batchUpdate(RESERVE_SQL, batchArgs);
+        UUID rejected = null;
+        Map<UUID, Integer> applied = new TreeMap<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                rejected = rejected != null ? rejected : productIds.get(i);
+            } else {
+                applied.put(productIds.get(i), lines.get(productIds.get(i)));
+            }
+        }
+        if (rejected == null) {
+            productCatalog.onProductsChanged(lines.keySet());
+            return Optional.empty();
+        }
+
+        if (!applied.isEmpty()) {
+            restock(applied);
+        }
+        if (!productRepository.existsById(rejected)) {
+            return Optional.of(new ResourceNotFoundException("Producto no encontrado"));
+        }
+        return Optional.of(new IllegalStateException("Stock insuficiente para el producto " + rejected));
+    }
+
+    public void release(Map<UUID, Integer> quantitiesByProduct) {
+        restock(quantitiesByProduct);
+        productCatalog.onProductsChanged(quantitiesByProduct.keySet());
+    }
+
+    private void restock(Map<UUID, Integer> quantitiesByProduct) {
+        List<Object[]> batchArgs = new ArrayList<>();
+        new TreeMap<>(quantitiesByProduct).forEach((productId, quantity) ->
+                batchArgs.add(new Object[]{quantity, productId}));
+
+        jdbcTemplate.batchUpdate(RELEASE_SQL, batchArgs);
+    }
+}
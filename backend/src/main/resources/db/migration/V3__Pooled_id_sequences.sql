@@ -0,0 +1,10 @@
+-- V3__Pooled_id_sequences.sql
+-- Las entidades reservan IDs en bloques de 50 (optimizador pooled-lo) para que
+-- Hibernate pueda agrupar los INSERT en batches JDBC; el incremento de cada
+-- secuencia debe coincidir con el allocationSize de su entidad.
+-- Los INSERT que usan el DEFAULT de la columna siguen siendo válidos: cada
+-- nextval() reserva un bloque completo que ningún otro proceso reutiliza.
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE products_id_seq INCREMENT BY 50;
+ALTER SEQUENCE orders_id_seq INCREMENT BY 50;
+ALTER SEQUENCE order_items_id_seq INCREMENT BY 50;
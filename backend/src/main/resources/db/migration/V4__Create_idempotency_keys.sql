@@ -0,0 +1,13 @@
+-- V4__Create_idempotency_keys.sql
+-- Claves Idempotency-Key de POST /api/orders ya confirmadas. La fila se inserta
+-- en la misma transacción que la orden, así un reintento tras un timeout (o tras
+-- reiniciar la instancia) recupera la orden creada en lugar de crear otra.
+CREATE TABLE idempotency_keys (
+    user_email VARCHAR(255) NOT NULL,
+    idempotency_key VARCHAR(100) NOT NULL,
+    order_id BIGINT NOT NULL REFERENCES orders(id) ON DELETE CASCADE,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (user_email, idempotency_key)
+);
+
+CREATE INDEX idx_idempotency_keys_created_at ON idempotency_keys(created_at);
@@ -0,0 +1,12 @@
+-- V5__Product_full_text_search.sql
+-- Búsqueda de texto completo sobre nombre, descripción y categoría. La columna
+-- generada la mantiene PostgreSQL en cada INSERT/UPDATE; el nombre pesa más que
+-- la categoría y esta más que la descripción al calcular ts_rank.
+ALTER TABLE products ADD COLUMN search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('spanish'::regconfig, coalesce(name, '')), 'A') ||
+        setweight(to_tsvector('spanish'::regconfig, coalesce(category, '')), 'B') ||
+        setweight(to_tsvector('spanish'::regconfig, coalesce(description, '')), 'C')
+    ) STORED;
+
+CREATE INDEX idx_products_search_vector ON products USING GIN (search_vector);
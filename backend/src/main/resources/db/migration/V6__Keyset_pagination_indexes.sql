@@ -0,0 +1,10 @@
+-- V6__Keyset_pagination_indexes.sql
+-- Índices compuestos (clave de orden, id) para la paginación por cursor. La
+-- consulta de la página siguiente es WHERE (clave, id) > (?, ?) ORDER BY clave, id
+-- LIMIT n: un recorrido acotado del índice, sin OFFSET ni count(*).
+CREATE INDEX idx_products_active_name_id ON products(name, id) WHERE active = true;
+CREATE INDEX idx_products_active_price_id ON products(price, id) WHERE active = true;
+CREATE INDEX idx_products_active_created_at_id ON products(created_at, id) WHERE active = true;
+
+CREATE INDEX idx_users_created_at_id ON users(created_at, id);
+CREATE INDEX idx_orders_created_at_id ON orders(created_at, id);
@@ -0,0 +1,5 @@
+-- V7__Product_rating_sort_index.sql
+-- Índice para ordenar productos activos por rating; nombre, precio y fecha de
+-- alta ya tienen el suyo desde V6. Son los únicos campos de ordenación aceptados
+-- por la API (ProductSortField).
+CREATE INDEX idx_products_active_rating_id ON products(rating, id) WHERE active = true;
@@ -0,0 +1,6 @@
+-- V8__Deferrable_idempotency_key_order_fk.sql
+-- La ingesta por lotes registra la Idempotency-Key antes de reservar stock e
+-- insertar la orden, para que dos instancias que procesan la misma clave no
+-- confirmen dos órdenes. La clave externa hacia orders se puede aplazar hasta el
+-- commit con SET CONSTRAINTS; el resto de escrituras la siguen comprobando al momento.
+ALTER TABLE idempotency_keys ALTER CONSTRAINT idempotency_keys_order_id_fkey DEFERRABLE INITIALLY IMMEDIATE;
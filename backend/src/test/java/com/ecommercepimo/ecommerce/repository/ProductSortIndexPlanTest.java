@@ -0,0 +1,79 @@
+package com.ecommercepimo.ecommerce.repository;
+
+import com.ecommercepimo.ecommerce.PostgresIntegrationTest;
+import com.ecommercepimo.ecommerce.dto.ProductSortField;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cada campo de {@link ProductSortField} se sirve con un recorrido del índice
+ * (campo, id) de los productos activos (V6, V7), tanto la primera página como la
+ * siguiente por keyset y en ambos sentidos, en lugar de ordenar la tabla entera.
+ */
+class ProductSortIndexPlanTest extends PostgresIntegrationTest {
+
+    private static final int PRODUCTS = 20_000;
+
+    // Columna e índice de cada campo; un campo nuevo sin entrada hace fallar el test
+    private static final Map<ProductSortField, String[]> INDEXES = new EnumMap<>(Map.of(
+            ProductSortField.ID, new String[]{"id", "products_pkey"},
+            ProductSortField.NAME, new String[]{"name", "idx_products_active_name_id"},
+            ProductSortField.PRICE, new String[]{"price", "idx_products_active_price_id"},
+            ProductSortField.CREATED_AT, new String[]{"created_at", "idx_products_active_created_at_id"},
+            ProductSortField.RATING, new String[]{"rating", "idx_products_active_rating_id"}));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void fillCatalog() {
+        jdbcTemplate.update(
+                "INSERT INTO products (name, price, stock, min_stock, category, active, featured, rating, review_count, " +
+                "created_at) " +
+                "SELECT 'Producto plan ' || g, 1 + g % 1000, 10, 0, 'Plan', g % 10 <> 0, false, (g % 50) / 10.0, 0, " +
+                "now() - g * interval '1 minute' FROM generate_series(1, ?) AS g", PRODUCTS);
+        jdbcTemplate.execute("ANALYZE products");
+    }
+
+    // Los demás tests comparten la base de datos y recorren el catálogo completo
+    @AfterEach
+    void removeCatalog() {
+        jdbcTemplate.update("DELETE FROM products WHERE category = 'Plan'");
+        jdbcTemplate.execute("ANALYZE products");
+    }
+
+    @ParameterizedTest
+    @EnumSource(ProductSortField.class)
+    void everySortFieldUsesItsIndex(ProductSortField field) {
+        assertThat(INDEXES).containsKey(field);
+        String column = INDEXES.get(field)[0];
+        String index = INDEXES.get(field)[1];
+        String keys = "id".equals(column) ? "id" : column + ", id";
+        String after = "id".equals(column) ? "(SELECT max(id) / 2 FROM products)"
+                : "(SELECT " + column + ", id FROM products WHERE active = true ORDER BY id LIMIT 1)";
+
+        for (String direction : new String[]{"ASC", "DESC"}) {
+            String orderBy = " ORDER BY " + ("id".equals(column) ? "id " + direction
+                    : column + " " + direction + ", id " + direction) + " LIMIT 20";
+            String firstPage = "SELECT * FROM products WHERE active = true" + orderBy;
+            String nextPage = "SELECT * FROM products WHERE active = true AND (" + keys + ") "
+                    + ("ASC".equals(direction) ? ">" : "<") + " " + after + orderBy;
+
+            assertThat(plan(firstPage)).as(firstPage).contains("Index Scan").contains("using " + index);
+            assertThat(plan(nextPage)).as(nextPage).contains("Index Scan").contains("using " + index);
+        }
+    }
+
+    private String plan(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+}
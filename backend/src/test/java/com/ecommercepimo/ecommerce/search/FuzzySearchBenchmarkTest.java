@@ -0,0 +1,153 @@
+package com.ecommercepimo.ecommerce.search;
+
+import com.ecommercepimo.ecommerce.entity.Product;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Búsqueda tolerante a erratas sobre un catálogo sintético en memoria, sin base de
+ * datos: {@code benchmark.products} productos (1M por defecto) cuyos nombres
+ * combinan {@code benchmark.terms} términos distintos. Mide la expansión de la
+ * consulta con el {@link BkTree} frente a comparar la distancia de edición con todo
+ * el vocabulario, y {@link ProductSearchIndex#fuzzySearch} completo por petición.
+ *
+ * Es un test JUnit con calentamiento y no JMH, que el proyecto no tiene entre sus
+ * dependencias. Con 1M productos conviene ampliar el heap de surefire.
+ *
+ * {@code mvn test -Pbenchmark -Dtest=FuzzySearchBenchmarkTest [-Dbenchmark.products=1000000] [-Dbenchmark.terms=100000]}
+ */
+@Slf4j
+@Tag("benchmark")
+class FuzzySearchBenchmarkTest {
+
+    private static final int PRODUCTS = Integer.getInteger("benchmark.products", 1_000_000);
+    private static final int TERMS = Integer.getInteger("benchmark.terms", 100_000);
+    private static final int WORDS_PER_NAME = 3;
+    private static final int QUERIES = 200;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    private final Random random = new Random(42);
+
+    @Test
+    void fuzzySearchOverLargeCatalog() {
+        List<String> vocabulary = new ArrayList<>(vocabulary());
+        ProductSearchIndex index = new ProductSearchIndex(null);
+        long start = System.nanoTime();
+        for (long id = 1; id <= PRODUCTS; id++) {
+            index.onProductChanged(product(id, vocabulary));
+        }
+        log.info("Indexed {} products ({} terms) in {} ms", PRODUCTS, index.vocabulary().size(),
+                (System.nanoTime() - start) / 1_000_000);
+
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < QUERIES; i++) {
+            queries.add(misspell(vocabulary.get(random.nextInt(vocabulary.size()))));
+        }
+
+        BkTree tree = new BkTree();
+        vocabulary.forEach(tree::add);
+        for (String query : queries) {
+            assertThat(expandWithTree(tree, query)).isEqualTo(expandByScan(vocabulary, query));
+        }
+        log.info("Query expansion: BK-tree {} us/query, full vocabulary scan {} us/query",
+                format(averageMicros(queries, query -> expandWithTree(tree, query))),
+                format(averageMicros(queries, query -> expandByScan(vocabulary, query))));
+
+        Pageable pageable = PageRequest.of(0, 20, Sort.by("name"));
+        for (String query : queries) {
+            assertThat(index.fuzzySearch(query, pageable).orElseThrow().getTotalElements()).isPositive();
+        }
+        List<String> twoWordQueries = queries.stream()
+                .map(query -> query + " " + misspell(vocabulary.get(random.nextInt(vocabulary.size()))))
+                .toList();
+        log.info("fuzzySearch: one word {} us/query, two words {} us/query",
+                format(averageMicros(queries, query -> index.fuzzySearch(query, pageable))),
+                format(averageMicros(twoWordQueries, query -> index.fuzzySearch(query, pageable))));
+    }
+
+    private Set<String> expandWithTree(BkTree tree, String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        tree.search(query, 1, (term, distance) -> terms.add(term));
+        return Set.copyOf(terms);
+    }
+
+    private Set<String> expandByScan(List<String> vocabulary, String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String term : vocabulary) {
+            if (BkTree.levenshtein(query, term) <= 1) {
+                terms.add(term);
+            }
+        }
+        return Set.copyOf(terms);
+    }
+
+    private static double averageMicros(List<String> queries, Consumer<String> search) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            queries.forEach(search);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            queries.forEach(search);
+        }
+        return (System.nanoTime() - start) / 1e3 / ROUNDS / queries.size();
+    }
+
+    private Set<String> vocabulary() {
+        Set<String> terms = new LinkedHashSet<>();
+        while (terms.size() < TERMS) {
+            int length = 5 + random.nextInt(6);
+            StringBuilder term = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                term.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+            }
+            terms.add(term.toString());
+        }
+        return terms;
+    }
+
+    private Product product(long id, List<String> vocabulary) {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < WORDS_PER_NAME; i++) {
+            if (i > 0) {
+                name.append(' ');
+            }
+            name.append(vocabulary.get(random.nextInt(vocabulary.size())));
+        }
+        return Product.builder()
+                .id(id)
+                .name(name.toString())
+                .price(BigDecimal.TEN)
+                .rating(BigDecimal.ZERO)
+                .category("Benchmark")
+                .active(true)
+                .build();
+    }
+
+    // Una sustitución en medio del término: distancia de edición 1
+    private String misspell(String term) {
+        int position = term.length() / 2;
+        char replacement = term.charAt(position) == 'x' ? 'y' : 'x';
+        return term.substring(0, position) + replacement + term.substring(position + 1);
+    }
+
+    private static String format(double value) {
+        return String.format("%.1f", value);
+    }
+}
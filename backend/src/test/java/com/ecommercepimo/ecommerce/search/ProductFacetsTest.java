@@ -0,0 +1,59 @@
+package com.ecommercepimo.ecommerce.search;
+
+import com.ecommercepimo.ecommerce.PostgresIntegrationTest;
+import com.ecommercepimo.ecommerce.entity.Product;
+import com.ecommercepimo.ecommerce.repository.ProductRepository;
+import com.ecommercepimo.ecommerce.service.StockReservationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Una reserva de stock por SQL se refleja en la faceta de stock en la siguiente
+ * consulta, sin esperar a la reconstrucción periódica.
+ */
+class ProductFacetsTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private ProductFacets productFacets;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void reservationUpdatesStockFacet() {
+        String category = "Facetas " + UUID.randomUUID();
+        Product product = productRepository.save(Product.builder()
+                .name("Producto facetas")
+                .price(new BigDecimal("10.00"))
+                .stock(2)
+                .minStock(0)
+                .category(category)
+                .active(true)
+                .featured(false)
+                .rating(BigDecimal.ZERO)
+                .reviewCount(0)
+                .build());
+        productFacets.rebuild();
+        ProductFacets.Filter filter = new ProductFacets.Filter(Set.of(category), null, null, false);
+        assertThat(productFacets.count(filter, null).inStock()).isEqualTo(1);
+
+        transactionTemplate.executeWithoutResult(status ->
+                stockReservationService.reserve(Map.of(product.getId(), 2)));
+
+        assertThat(productFacets.count(filter, null).inStock()).isZero();
+    }
+}
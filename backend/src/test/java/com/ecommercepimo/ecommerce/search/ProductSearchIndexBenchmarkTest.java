@@ -0,0 +1,111 @@
+package com.ecommercepimo.ecommerce.search;
+
+import com.ecommercepimo.ecommerce.PostgresIntegrationTest;
+import com.ecommercepimo.ecommerce.dto.ProductResponse;
+import com.ecommercepimo.ecommerce.mapper.ProductMapper;
+import com.ecommercepimo.ecommerce.repository.ProductRepository;
+import com.ecommercepimo.ecommerce.service.ProductService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Búsqueda de productos por nombre con {@code benchmark.products} productos
+ * (1M por defecto): el índice invertido en memoria que usa
+ * {@code GET /api/products/search} frente a la consulta
+ * {@code LOWER(name) LIKE '%q%'}, que recorre la tabla entera. Ambos caminos
+ * devuelven la misma primera página y el mismo total.
+ *
+ * {@code mvn test -Pbenchmark -Dtest=ProductSearchIndexBenchmarkTest [-Dbenchmark.products=1000000]}
+ */
+@Slf4j
+@Tag("benchmark")
+class ProductSearchIndexBenchmarkTest extends PostgresIntegrationTest {
+
+    private static final int PRODUCTS = Integer.getInteger("benchmark.products", 1_000_000);
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 10;
+
+    // Muy frecuente, poco frecuente, casi única, sin resultados y más corta que un trigrama
+    private static final List<String> QUERIES = List.of("zapatilla", "roja urbana", "modelo 4242", "inexistente", "ur");
+
+    private static final String INSERT_PRODUCTS_SQL =
+            "INSERT INTO products (name, price, stock, min_stock, category, active, featured, rating, review_count) " +
+            "SELECT (ARRAY['Camiseta','Zapatilla','Pantalon','Chaqueta','Mochila','Gorra','Bufanda','Reloj'])[1 + g % 8] " +
+            "|| ' ' || (ARRAY['roja','azul','negra','blanca','verde','gris'])[1 + (g / 8) % 6] " +
+            "|| ' ' || (ARRAY['deportiva','urbana','clasica','premium','basica'])[1 + (g / 48) % 5] " +
+            "|| ' modelo ' || g, " +
+            "1 + g % 500, 100, 0, 'Benchmark', true, false, (g % 50) / 10.0, 0 " +
+            "FROM generate_series(1, ?) AS g";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Test
+    void indexVersusLikeScan() {
+        long start = System.nanoTime();
+        jdbcTemplate.update(INSERT_PRODUCTS_SQL, PRODUCTS);
+        jdbcTemplate.execute("ANALYZE products");
+        log.info("Inserted {} products in {} ms", PRODUCTS, millis(start));
+
+        start = System.nanoTime();
+        productSearchIndex.rebuild();
+        log.info("Index rebuilt in {} ms", millis(start));
+
+        // Orden por id: el de name depende de la collation de la base de datos
+        Pageable pageable = PageRequest.of(0, 20, Sort.by("id"));
+        for (String query : QUERIES) {
+            Supplier<Page<ProductResponse>> index = () -> productService.searchProductsByName(query, pageable, false);
+            Supplier<Page<ProductResponse>> sql = () -> productRepository
+                    .findByActiveTrueAndNameContaining(query, pageable)
+                    .map(productMapper::toProductResponse);
+
+            Page<ProductResponse> fromIndex = index.get();
+            Page<ProductResponse> fromSql = sql.get();
+            assertThat(fromIndex.getTotalElements()).isEqualTo(fromSql.getTotalElements());
+            assertThat(fromIndex.getContent()).extracting(ProductResponse::getId)
+                    .containsExactlyElementsOf(fromSql.getContent().stream().map(ProductResponse::getId).toList());
+
+            log.info("'{}' ({} matches): index {} ms/query, LIKE {} ms/query", query, fromIndex.getTotalElements(),
+                    String.format("%.2f", averageMillis(index)), String.format("%.2f", averageMillis(sql)));
+        }
+    }
+
+    private static double averageMillis(Supplier<?> search) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            search.get();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            search.get();
+        }
+        return (System.nanoTime() - start) / 1e6 / ROUNDS;
+    }
+
+    private static long millis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
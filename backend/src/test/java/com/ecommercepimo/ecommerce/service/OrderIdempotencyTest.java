@@ -0,0 +1,85 @@
+package com.ecommercepimo.ecommerce.service;
+
+import com.ecommercepimo.ecommerce.PostgresIntegrationTest;
+import com.ecommercepimo.ecommerce.dto.OrderCreateRequest;
+import com.ecommercepimo.ecommerce.dto.OrderItemCreateRequest;
+import com.ecommercepimo.ecommerce.dto.OrderResponse;
+import com.ecommercepimo.ecommerce.entity.Product;
+import com.ecommercepimo.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Creación de órdenes con {@code Idempotency-Key}: la clave se registra junto a la
+ * orden y un reintento con la misma clave no crea otra ni vuelve a reservar stock.
+ */
+class OrderIdempotencyTest extends PostgresIntegrationTest {
+
+    private static final String USER = "user@test.com";
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void createOrderWithIdempotencyKeyRecordsKeyOnce() {
+        Product product = productRepository.save(Product.builder()
+                .name("Producto idempotencia")
+                .price(new BigDecimal("10.00"))
+                .stock(5)
+                .minStock(0)
+                .category("Tests")
+                .active(true)
+                .featured(false)
+                .rating(BigDecimal.ZERO)
+                .reviewCount(0)
+                .build());
+        OrderCreateRequest request = OrderCreateRequest.builder()
+                .orderItems(List.of(OrderItemCreateRequest.builder()
+                        .productId(product.getId())
+                        .quantity(2)
+                        .build()))
+                .shippingAddress("Calle Falsa 123")
+                .build();
+        String key = UUID.randomUUID().toString();
+
+        OrderResponse first = idempotencyService.execute(USER, key,
+                () -> orderService.createOrder(USER, request, key),
+                orderId -> orderService.getOrderById(orderId, USER));
+        OrderResponse retry = idempotencyService.execute(USER, key,
+                () -> orderService.createOrder(USER, request, key),
+                orderId -> orderService.getOrderById(orderId, USER));
+
+        assertThat(retry.getId()).isEqualTo(first.getId());
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT order_id FROM idempotency_keys WHERE user_email = ? AND idempotency_key = ?",
+                Long.class, USER, key)).isEqualTo(first.getId());
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStock()).isEqualTo(3);
+
+        // Sin la entrada en memoria (otra instancia) la clave de la tabla rechaza la orden
+        // y la transacción se revierte con su reserva
+        assertThatThrownBy(() -> orderService.createOrder(USER, request, key))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStock()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM order_items WHERE product_id = ?", Integer.class, product.getId()))
+                .isEqualTo(1);
+    }
+}
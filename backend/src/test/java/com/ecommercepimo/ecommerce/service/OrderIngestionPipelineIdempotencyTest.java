@@ -0,0 +1,114 @@
+package com.ecommercepimo.ecommerce.service;
+
+import com.ecommercepimo.ecommerce.PostgresIntegrationTest;
+import com.ecommercepimo.ecommerce.dto.OrderCreateRequest;
+import com.ecommercepimo.ecommerce.dto.OrderItemCreateRequest;
+import com.ecommercepimo.ecommerce.dto.OrderResponse;
+import com.ecommercepimo.ecommerce.entity.Product;
+import com.ecommercepimo.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Idempotency-Key en la ingesta por lotes: la clave se registra antes de reservar,
+ * así que una clave ya confirmada por otra instancia rechaza la orden sin tocar el
+ * stock, y una orden rechazada no deja su clave registrada.
+ */
+@TestPropertySource(properties = "app.order-ingestion.enabled=true")
+class OrderIngestionPipelineIdempotencyTest extends PostgresIntegrationTest {
+
+    private static final String USER = "user@test.com";
+
+    @Autowired
+    private OrderIngestionPipeline pipeline;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void keyAlreadyRecordedElsewhereRejectsOrderWithoutReserving() {
+        Product product = product(5);
+        String key = UUID.randomUUID().toString();
+        // La "otra instancia" confirma la orden con la misma clave
+        OrderResponse existing = orderService.createOrder(USER, request(product, 1), key);
+
+        assertThatThrownBy(() -> pipeline.submitAndWait(USER, request(product, 1), key))
+                .isInstanceOf(DuplicateKeyException.class);
+
+        assertThat(stock(product)).isEqualTo(4);
+        assertThat(orderIdFor(key)).containsExactly(existing.getId());
+    }
+
+    @Test
+    void recordsKeyForCreatedOrder() {
+        Product product = product(5);
+        String key = UUID.randomUUID().toString();
+
+        OrderResponse order = pipeline.submitAndWait(USER, request(product, 2), key);
+
+        assertThat(orderIdFor(key)).containsExactly(order.getId());
+        assertThat(stock(product)).isEqualTo(3);
+    }
+
+    @Test
+    void rejectedOrderDoesNotKeepItsKey() {
+        Product product = product(1);
+        String key = UUID.randomUUID().toString();
+
+        assertThatThrownBy(() -> pipeline.submitAndWait(USER, request(product, 2), key))
+                .hasMessageContaining("Stock insuficiente");
+
+        assertThat(orderIdFor(key)).isEmpty();
+        assertThat(stock(product)).isEqualTo(1);
+    }
+
+    private Product product(int stock) {
+        return productRepository.save(Product.builder()
+                .name("Producto ingesta")
+                .price(new BigDecimal("10.00"))
+                .stock(stock)
+                .minStock(0)
+                .category("Tests")
+                .active(true)
+                .featured(false)
+                .rating(BigDecimal.ZERO)
+                .reviewCount(0)
+                .build());
+    }
+
+    private static OrderCreateRequest request(Product product, int quantity) {
+        return OrderCreateRequest.builder()
+                .orderItems(List.of(OrderItemCreateRequest.builder()
+                        .productId(product.getId())
+                        .quantity(quantity)
+                        .build()))
+                .shippingAddress("Calle Falsa 123")
+                .build();
+    }
+
+    private int stock(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getStock();
+    }
+
+    private List<Long> orderIdFor(String key) {
+        return jdbcTemplate.queryForList(
+                "SELECT order_id FROM idempotency_keys WHERE user_email = ? AND idempotency_key = ?",
+                Long.class, USER, key);
+    }
+}
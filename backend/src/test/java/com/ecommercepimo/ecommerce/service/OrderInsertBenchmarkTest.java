@@ -0,0 +1,158 @@
+package com.ecommercepimo.ecommerce.service;
+
+import com.ecommercepimo.ecommerce.PostgresIntegrationTest;
+import com.ecommercepimo.ecommerce.dto.OrderCreateRequest;
+import com.ecommercepimo.ecommerce.dto.OrderItemCreateRequest;
+import com.ecommercepimo.ecommerce.entity.Order;
+import com.ecommercepimo.ecommerce.entity.OrderItem;
+import com.ecommercepimo.ecommerce.entity.Product;
+import com.ecommercepimo.ecommerce.entity.User;
+import com.ecommercepimo.ecommerce.repository.ProductRepository;
+import com.ecommercepimo.ecommerce.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Inserción masiva de órdenes con sus items: ids de secuencia con optimizador
+ * pooled (inserts en batch de Hibernate) frente a lo que hacía IDENTITY, un INSERT
+ * con {@code RETURNING id} por fila. Se mide el tiempo total y las sentencias
+ * enviadas a PostgreSQL (cada una es un round-trip; con reWriteBatchedInserts un
+ * batch de Hibernate también lo es).
+ *
+ * {@code mvn test -Pbenchmark -Dtest=OrderInsertBenchmarkTest [-Dbenchmark.orders=100000]}
+ */
+@Slf4j
+@Tag("benchmark")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class OrderInsertBenchmarkTest extends PostgresIntegrationTest {
+
+    private static final int ORDERS = Integer.getInteger("benchmark.orders", 100_000);
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final int ORDERS_PER_TRANSACTION = 1_000;
+
+    private static final String INSERT_ORDER_SQL =
+            "INSERT INTO orders (order_number, user_id, status, total_amount, shipping_address, " +
+            "payment_status, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?) RETURNING id";
+
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO order_items (order_id, product_id, quantity, unit_price, subtotal) " +
+            "VALUES (?, ?, ?, ?, ?) RETURNING id";
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderNumberGenerator orderNumberGenerator;
+
+    @Test
+    void pooledSequencesVersusIdentity() {
+        User user = userRepository.findByEmail("user@test.com").orElseThrow();
+        Map<Long, Product> products = productRepository.findAll().stream()
+                .limit(ITEMS_PER_ORDER)
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        OrderCreateRequest request = OrderCreateRequest.builder()
+                .orderItems(products.keySet().stream()
+                        .map(id -> OrderItemCreateRequest.builder().productId(id).quantity(1).build())
+                        .toList())
+                .shippingAddress("Calle Falsa 123")
+                .build();
+
+        Result identity = rowByRow(user, request, products);
+        Result pooled = batched(user, request, products);
+
+        log.info("{} órdenes x {} items", ORDERS, ITEMS_PER_ORDER);
+        log.info("  IDENTITY (fila a fila): {} ms, {} sentencias", identity.millis(), identity.statements());
+        log.info("  secuencia pooled:       {} ms, {} sentencias", pooled.millis(), pooled.statements());
+
+        assertThat(pooled.statements()).isLessThan(identity.statements() / 10);
+    }
+
+    /**
+     * Lo que ejecuta Hibernate con IDENTITY: cada persist es un INSERT inmediato que
+     * devuelve el id generado, sin posibilidad de agruparlo en batch.
+     */
+    private Result rowByRow(User user, OrderCreateRequest request, Map<Long, Product> products) {
+        long start = System.nanoTime();
+        long statements = 0;
+        for (int done = 0; done < ORDERS; done += ORDERS_PER_TRANSACTION) {
+            int count = Math.min(ORDERS_PER_TRANSACTION, ORDERS - done);
+            statements += transactionTemplate.execute(status -> {
+                long executed = 0;
+                for (int i = 0; i < count; i++) {
+                    Order order = OrderService.newOrder(user, request, products, orderNumberGenerator.next());
+                    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                    Long orderId = jdbcTemplate.queryForObject(INSERT_ORDER_SQL, Long.class,
+                            order.getOrderNumber(), user.getId(), order.getStatus().name(), order.getTotalAmount(),
+                            order.getShippingAddress(), order.getPaymentStatus().name(), now, now);
+                    executed++;
+                    for (OrderItem item : order.getOrderItems()) {
+                        jdbcTemplate.queryForObject(INSERT_ITEM_SQL, Long.class, orderId, item.getProduct().getId(),
+                                item.getQuantity(), item.getUnitPrice(), item.getSubtotal());
+                        executed++;
+                    }
+                }
+                return executed;
+            });
+        }
+        return new Result(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), statements);
+    }
+
+    /**
+     * El camino actual: persist de las entidades y flush con inserts en batch
+     */
+    private Result batched(User user, OrderCreateRequest request, Map<Long, Product> products) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long start = System.nanoTime();
+        for (int done = 0; done < ORDERS; done += ORDERS_PER_TRANSACTION) {
+            int count = Math.min(ORDERS_PER_TRANSACTION, ORDERS - done);
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = 0; i < count; i++) {
+                    entityManager.persist(OrderService.newOrder(user, request, products, orderNumberGenerator.next()));
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+        }
+        // Incluye los nextval de las secuencias (uno cada 50 ids por tabla)
+        return new Result(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                statistics.getPrepareStatementCount());
+    }
+
+    private record Result(long millis, long statements) {
+    }
+}
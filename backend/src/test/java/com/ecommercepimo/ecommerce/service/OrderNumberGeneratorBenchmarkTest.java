@@ -0,0 +1,78 @@
+package com.ecommercepimo.ecommerce.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Números de orden por segundo con varios hilos compartiendo un generador, y
+ * unicidad de todo lo emitido por dos "instancias" con distinto node-id.
+ *
+ * {@code mvn test -Pbenchmark -Dtest=OrderNumberGeneratorBenchmarkTest [-Dbenchmark.numbers=4000000]}
+ */
+@Slf4j
+@Tag("benchmark")
+class OrderNumberGeneratorBenchmarkTest {
+
+    private static final int NUMBERS = Integer.getInteger("benchmark.numbers", 4_000_000);
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int WARMUP_ROUNDS = 3;
+
+    @Test
+    void throughputAndUniquenessAcrossNodes() throws Exception {
+        OrderNumberGenerator nodeA = new OrderNumberGenerator("1");
+        OrderNumberGenerator nodeB = new OrderNumberGenerator("2");
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            generate(nodeA, NUMBERS / 10);
+        }
+
+        long start = System.nanoTime();
+        List<String> fromA = generate(nodeA, NUMBERS);
+        long nanos = System.nanoTime() - start;
+        List<String> fromB = generate(nodeB, NUMBERS);
+
+        log.info("{} order numbers on {} threads: {} million/s", NUMBERS, THREADS,
+                String.format("%.1f", NUMBERS / (nanos / 1e9) / 1e6));
+
+        Set<String> unique = new HashSet<>(2 * NUMBERS);
+        unique.addAll(fromA);
+        unique.addAll(fromB);
+        assertThat(unique).hasSize(2 * NUMBERS);
+    }
+
+    private static List<String> generate(OrderNumberGenerator generator, int total) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<String[]>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int count = total / THREADS + (t < total % THREADS ? 1 : 0);
+                futures.add(executor.submit(() -> {
+                    String[] numbers = new String[count];
+                    for (int i = 0; i < count; i++) {
+                        numbers[i] = generator.next();
+                    }
+                    return numbers;
+                }));
+            }
+            List<String> numbers = new ArrayList<>(total);
+            for (Future<String[]> future : futures) {
+                numbers.addAll(List.of(future.get(1, TimeUnit.MINUTES)));
+            }
+            return numbers;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
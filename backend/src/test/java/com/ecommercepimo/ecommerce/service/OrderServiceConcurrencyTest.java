@@ -0,0 +1,100 @@
+package com.ecommercepimo.ecommerce.service;
+
+import com.ecommercepimo.ecommerce.PostgresIntegrationTest;
+import com.ecommercepimo.ecommerce.dto.OrderCreateRequest;
+import com.ecommercepimo.ecommerce.dto.OrderItemCreateRequest;
+import com.ecommercepimo.ecommerce.entity.Product;
+import com.ecommercepimo.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Muchos checkouts simultáneos del mismo producto con poco stock: la reserva
+ * condicional nunca debe vender más unidades de las que hay.
+ */
+class OrderServiceConcurrencyTest extends PostgresIntegrationTest {
+
+    private static final int INITIAL_STOCK = 20;
+    private static final int ORDERS = 100;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentOrdersNeverOversell() throws Exception {
+        Product product = productRepository.save(Product.builder()
+                .name("Producto concurrencia")
+                .price(new BigDecimal("10.00"))
+                .stock(INITIAL_STOCK)
+                .minStock(0)
+                .category("Tests")
+                .active(true)
+                .featured(false)
+                .rating(BigDecimal.ZERO)
+                .reviewCount(0)
+                .build());
+
+        OrderCreateRequest request = OrderCreateRequest.builder()
+                .orderItems(List.of(OrderItemCreateRequest.builder()
+                        .productId(product.getId())
+                        .quantity(1)
+                        .build()))
+                .shippingAddress("Calle Falsa 123")
+                .build();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < ORDERS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        orderService.createOrder("user@test.com", request);
+                        return true;
+                    } catch (RuntimeException ex) {
+                        assertThat(ex).hasMessageContaining("Stock insuficiente");
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int accepted = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(60, TimeUnit.SECONDS)) {
+                    accepted++;
+                }
+            }
+
+            int finalStock = productRepository.findById(product.getId()).orElseThrow().getStock();
+            assertThat(finalStock).isGreaterThanOrEqualTo(0);
+            assertThat(accepted).isEqualTo(INITIAL_STOCK);
+            assertThat(finalStock).isZero();
+            assertThat(jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(SUM(quantity), 0) FROM order_items WHERE product_id = ?",
+                    Integer.class, product.getId())).isEqualTo(INITIAL_STOCK);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.ecommercepimo.ecommerce.service;
+
+import com.ecommercepimo.ecommerce.PostgresIntegrationTest;
+import com.ecommercepimo.ecommerce.dto.ProductResponse;
+import com.ecommercepimo.ecommerce.dto.ProductUpdateRequest;
+import com.ecommercepimo.ecommerce.entity.Product;
+import com.ecommercepimo.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tras modificar un producto, la versión en cache lleva el updatedAt nuevo y, con
+ * él, un ETag distinto del anterior. Los cambios de stock no tocan el ETag de
+ * categorías.
+ */
+class ProductCatalogCacheTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void updatedProductGetsNewEtag() throws InterruptedException {
+        Product product = productRepository.save(Product.builder()
+                .name("Producto ETag")
+                .price(new BigDecimal("10.00"))
+                .stock(5)
+                .minStock(0)
+                .category("Tests")
+                .active(true)
+                .featured(false)
+                .rating(BigDecimal.ZERO)
+                .reviewCount(0)
+                .build());
+        ProductResponse before = productCatalogCache.getProduct(product.getId());
+
+        Thread.sleep(5);
+        productService.updateProduct(product.getId(), ProductUpdateRequest.builder()
+                .name("Producto ETag renombrado")
+                .price(new BigDecimal("12.00"))
+                .stock(5)
+                .minStock(0)
+                .category("Tests")
+                .featured(false)
+                .active(true)
+                .build());
+
+        ProductResponse after = productCatalogCache.getProduct(product.getId());
+        assertThat(after.getName()).isEqualTo("Producto ETag renombrado");
+        assertThat(after.getUpdatedAt()).isAfter(before.getUpdatedAt());
+        assertThat(ProductCatalogCache.etag(after)).isNotEqualTo(ProductCatalogCache.etag(before));
+    }
+
+    @Test
+    void stockChangeKeepsCategoriesEtag() {
+        productService.getAvailableCategories();
+        String categories = productCatalogCache.getCategoriesEtag();
+        String featured = productCatalogCache.getFeaturedEtag();
+
+        productCatalogCache.onStockChanged(Set.of(1L));
+
+        assertThat(productCatalogCache.getCategoriesEtag()).isEqualTo(categories);
+        assertThat(productCatalogCache.getFeaturedEtag()).isNotEqualTo(featured);
+    }
+}
@@ -0,0 +1,56 @@
+package com.ecommercepimo.ecommerce.service;
+
+import com.ecommercepimo.ecommerce.PostgresIntegrationTest;
+import com.ecommercepimo.ecommerce.dto.ProductSearchResult;
+import com.ecommercepimo.ecommerce.entity.Product;
+import com.ecommercepimo.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * El fragmento resaltado lleva el texto del producto escapado como HTML: el
+ * marcado de una descripción nunca sale tal cual, solo los {@code <mark>}.
+ */
+class ProductFullTextSearchTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void highlightEscapesProductText() {
+        Product product = productRepository.save(Product.builder()
+                .name("Lámpara zigzagueante")
+                .description("<script>alert('x')</script> Lámpara de mesa \"retro\" & regulable")
+                .price(new BigDecimal("10.00"))
+                .stock(5)
+                .minStock(0)
+                .category("Tests")
+                .active(true)
+                .featured(false)
+                .rating(BigDecimal.ZERO)
+                .reviewCount(0)
+                .build());
+
+        List<ProductSearchResult> results = productService
+                .searchProductsFullText("zigzagueante", PageRequest.of(0, 10))
+                .getContent();
+
+        assertThat(results).extracting(result -> result.getProduct().getId()).contains(product.getId());
+        String highlight = results.stream()
+                .filter(result -> result.getProduct().getId().equals(product.getId()))
+                .findFirst()
+                .orElseThrow()
+                .getHighlight();
+        assertThat(highlight).contains("<mark>").doesNotContain("<script>", "\"retro\"", " & ");
+        assertThat(highlight.replace("<mark>", "").replace("</mark>", "")).doesNotContain("<", ">");
+    }
+}
@@ -0,0 +1,78 @@
+package com.ecommercepimo.ecommerce.service;
+
+import com.ecommercepimo.ecommerce.PostgresIntegrationTest;
+import com.ecommercepimo.ecommerce.dto.CursorPage;
+import com.ecommercepimo.ecommerce.dto.ProductResponse;
+import com.ecommercepimo.ecommerce.entity.Product;
+import com.ecommercepimo.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Recorrer los productos activos por cursor devuelve cada producto una sola vez y
+ * en el mismo orden que {@code ORDER BY clave, id}, también con claves repetidas.
+ */
+class ProductScrollTest extends PostgresIntegrationTest {
+
+    private static final int PAGE_SIZE = 3;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void createProductsWithRepeatedKeys() {
+        if (productRepository.count() > 20) {
+            return;
+        }
+        for (int i = 0; i < 12; i++) {
+            productRepository.save(Product.builder()
+                    .name("Producto cursor " + (i % 4))
+                    .price(new BigDecimal(10 + i % 3))
+                    .stock(1)
+                    .minStock(0)
+                    .category("Tests")
+                    .active(i % 5 != 0)
+                    .featured(false)
+                    .rating(BigDecimal.ZERO)
+                    .reviewCount(0)
+                    .build());
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "id, ASC, id", "id, DESC, id",
+            "name, ASC, name", "name, DESC, name",
+            "price, ASC, price", "price, DESC, price",
+            "createdAt, ASC, created_at", "createdAt, DESC, created_at"})
+    void scrollVisitsEveryActiveProductOnceInOrder(String sortBy, Sort.Direction direction, String column) {
+        List<Long> scrolled = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<ProductResponse> page = productService.scrollProducts(cursor, PAGE_SIZE, sortBy, direction);
+            page.getContent().forEach(product -> scrolled.add(product.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        List<Long> expected = jdbcTemplate.queryForList(
+                "SELECT id FROM products WHERE active = true ORDER BY " + column + " " + direction + ", id " + direction,
+                Long.class);
+        assertThat(scrolled).containsExactlyElementsOf(expected);
+    }
+}
@@ -0,0 +1,39 @@
+package com.ecommerxo.api;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.MountableFile;
+
+/**
+ * Base de los tests de integración: PostgreSQL real en un contenedor con el
+ * esquema de {@code database/init.sql}, el mismo que carga docker-compose.
+ * Flyway queda desactivado: sus migraciones son las del otro backend.
+ *
+ * El contenedor se arranca una sola vez y lo comparten todas las clases de test
+ * (y el contexto de Spring que cachea el framework). Sin Docker se omiten.
+ */
+@SpringBootTest(classes = EcommerxoApiApplication.class, webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {
+                "jwt.secret=test-secret-for-integration-tests-0123456789abcdefghijklmnopqrstuvwxyz",
+                "jwt.expiration=3600000"
+        })
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class PostgresIntegrationTest {
+
+    protected static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15")
+            .withCopyFileToContainer(MountableFile.forHostPath("../database/init.sql"),
+                    "/docker-entrypoint-initdb.d/init.sql");
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        POSTGRES.start();
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.flyway.enabled", () -> "false");
+        registry.add("app.warmup.enabled", () -> "false");
+    }
+}
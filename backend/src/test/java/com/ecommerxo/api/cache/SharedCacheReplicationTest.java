@@ -0,0 +1,142 @@
+package com.ecommerxo.api.cache;
+
+import com.ecommerxo.api.EcommerxoApiApplication;
+import com.ecommerxo.api.PostgresIntegrationTest;
+import com.ecommerxo.api.dto.CategoryDTO;
+import com.ecommerxo.api.dto.ProductDTO;
+import com.ecommerxo.api.service.CategoryService;
+import com.ecommerxo.api.service.ProductService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Dos réplicas sobre la misma base de datos con la cache compartida activada: la
+ * del test (A) y otro contexto de Spring (B). Lo que cambia en A tiene que llegar
+ * a B por el canal de invalidación: el catálogo en memoria se actualiza, la copia
+ * local (L1) de la cache de productos se descarta y la versión de las categorías
+ * (ETag y claves de cache) es la misma en las dos.
+ */
+@TestPropertySource(properties = "app.cache.shared.enabled=true")
+class SharedCacheReplicationTest extends PostgresIntegrationTest {
+
+    private static final long TIMEOUT_MS = 10_000;
+
+    private static ConfigurableApplicationContext replicaB;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private Environment environment;
+
+    @BeforeEach
+    void startReplicaB() {
+        if (replicaB != null) {
+            return;
+        }
+        // Como argumentos: las propiedades por defecto del builder no pisan application.properties
+        replicaB = new SpringApplicationBuilder(EcommerxoApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + environment.getProperty("spring.datasource.url"),
+                        "--spring.datasource.username=" + environment.getProperty("spring.datasource.username"),
+                        "--spring.datasource.password=" + environment.getProperty("spring.datasource.password"),
+                        "--spring.flyway.enabled=false",
+                        "--app.warmup.enabled=false",
+                        "--app.cache.shared.enabled=true",
+                        "--jwt.secret=" + environment.getProperty("jwt.secret"),
+                        "--jwt.expiration=3600000");
+    }
+
+    @AfterAll
+    static void stopReplicaB() {
+        if (replicaB != null) {
+            replicaB.close();
+            replicaB = null;
+        }
+    }
+
+    @Test
+    void catalogChangeReachesOtherReplica() throws InterruptedException {
+        ProductService serviceB = replicaB.getBean(ProductService.class);
+        ProductDTO product = productService.createProduct(product("Réplica catálogo"));
+        awaitUntil(() -> serviceB.getAllProducts().stream().anyMatch(p -> p.getId().equals(product.getId())));
+
+        String etagB = serviceB.getCatalogEtag();
+        product.setName("Réplica catálogo renombrado");
+        productService.updateProduct(product.getId(), product);
+
+        awaitUntil(() -> serviceB.getAllProducts().stream()
+                .anyMatch(p -> p.getId().equals(product.getId()) && p.getName().equals(product.getName())));
+        assertThat(serviceB.getCatalogEtag()).isNotEqualTo(etagB);
+    }
+
+    @Test
+    void productUpdateEvictsOtherReplicaLocalCopy() throws InterruptedException {
+        ProductService serviceB = replicaB.getBean(ProductService.class);
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> localB =
+                ((TwoLevelCache) replicaB.getBean(CacheManager.class).getCache("products")).getNativeCache();
+        ProductDTO product = productService.createProduct(product("Réplica producto"));
+        String key = TwoLevelCache.key(product.getId());
+
+        assertThat(serviceB.getProduct(product.getId()).getName()).isEqualTo("Réplica producto");
+        assertThat(localB.getIfPresent(key)).isNotNull();
+
+        product.setName("Réplica producto renombrado");
+        productService.updateProduct(product.getId(), product);
+
+        awaitUntil(() -> localB.getIfPresent(key) == null);
+        assertThat(serviceB.getProduct(product.getId()).getName()).isEqualTo("Réplica producto renombrado");
+    }
+
+    @Test
+    void categoryChangeChangesOtherReplicaEtag() throws InterruptedException {
+        CategoryService categoriesB = replicaB.getBean(CategoryService.class);
+        assertThat(categoriesB.getAllCategories()).extracting(CategoryDTO::getName)
+                .doesNotContain("Réplica categoría");
+        String etagB = categoriesB.getCategoriesEtag();
+
+        CategoryDTO category = new CategoryDTO();
+        category.setName("Réplica categoría");
+        categoryService.createCategory(category);
+
+        awaitUntil(() -> !categoriesB.getCategoriesEtag().equals(etagB));
+        assertThat(categoriesB.getCategoriesEtag()).isEqualTo(categoryService.getCategoriesEtag());
+        assertThat(categoriesB.getCacheVersion()).isEqualTo(categoryService.getCacheVersion());
+        assertThat(categoriesB.getAllCategories()).extracting(CategoryDTO::getName)
+                .contains("Réplica categoría");
+    }
+
+    private static ProductDTO product(String name) {
+        ProductDTO product = new ProductDTO();
+        product.setName(name);
+        product.setPrice(new BigDecimal("10.00"));
+        product.setMinStockLevel(0);
+        product.setSku("REP-" + UUID.randomUUID());
+        return product;
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("timeout").isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+}
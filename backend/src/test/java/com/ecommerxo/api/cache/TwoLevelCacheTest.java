@@ -0,0 +1,92 @@
+package com.ecommerxo.api.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Las claves de la cache de "no encontrado" no llegan a L2; el resto sí. Un aviso
+ * de desalojo que llega mientras se lee L2 no deja la copia local.
+ */
+class TwoLevelCacheTest {
+
+    private final AtomicInteger sharedReads = new AtomicInteger();
+
+    private final SharedCacheStore shared = new SharedCacheStore(new JdbcTemplate(), new ObjectMapper(), Duration.ZERO) {
+        @Override
+        public Optional<Object> get(String cacheName, String key) {
+            sharedReads.incrementAndGet();
+            return Optional.empty();
+        }
+
+        @Override
+        public void put(String cacheName, String key, Object value) {
+        }
+    };
+
+    private final Cache notFound = new CaffeineCache("productsNotFound", Caffeine.newBuilder().build());
+
+    private final TwoLevelCache cache = new TwoLevelCache("products", Caffeine.newBuilder().build(), shared, notFound);
+
+    @Test
+    void knownMissingKeySkipsSharedLevel() {
+        UUID id = UUID.randomUUID();
+        notFound.put(id, Boolean.TRUE);
+
+        assertThatThrownBy(() -> cache.get(id, () -> {
+            throw new IllegalStateException("no existe");
+        })).isInstanceOf(Cache.ValueRetrievalException.class);
+        assertThat(cache.get(id)).isNull();
+        assertThat(sharedReads).hasValue(0);
+    }
+
+    @Test
+    void otherKeysAreLookedUpInSharedLevel() {
+        UUID id = UUID.randomUUID();
+
+        assertThat(cache.get(id, () -> "valor")).isEqualTo("valor");
+        assertThat(sharedReads).hasValue(1);
+    }
+
+    @Test
+    void evictionDuringSharedReadIsNotLost() throws InterruptedException {
+        AtomicReference<Thread> evicting = new AtomicReference<>();
+        AtomicReference<TwoLevelCache> target = new AtomicReference<>();
+        SharedCacheStore slowShared = new SharedCacheStore(new JdbcTemplate(), new ObjectMapper(), Duration.ZERO) {
+            @Override
+            public Optional<Object> get(String cacheName, String key) {
+                sharedReads.incrementAndGet();
+                if (evicting.get() == null) {
+                    // El aviso de otra réplica llega mientras se lee el valor antiguo de L2
+                    Thread thread = new Thread(() -> target.get().evictLocal(key));
+                    evicting.set(thread);
+                    thread.start();
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return Optional.of("valor");
+            }
+        };
+        target.set(new TwoLevelCache("products", Caffeine.newBuilder().build(), slowShared));
+
+        assertThat(target.get().get("clave").get()).isEqualTo("valor");
+        evicting.get().join();
+        target.get().get("clave");
+        assertThat(sharedReads).hasValue(2);
+    }
+}
@@ -0,0 +1,79 @@
+package com.ecommerxo.api.model;
+
+import com.ecommerxo.api.PostgresIntegrationTest;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Claves primarias UUID v7 (ordenadas por tiempo) frente a UUID aleatorios (v4) en
+ * una tabla con la forma de {@code inventory}: filas por segundo al insertar y
+ * tamaño final del índice de la clave primaria. Con v4 cada inserción cae en una
+ * hoja cualquiera del B-tree (divisiones de página, hojas a medio llenar); con v7
+ * siempre en la última.
+ *
+ * {@code mvn test -Pbenchmark -Dtest=UuidV7InsertBenchmarkTest [-Dbenchmark.rows=1000000]}
+ */
+@Slf4j
+@Tag("benchmark")
+class UuidV7InsertBenchmarkTest extends PostgresIntegrationTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 1_000_000);
+    private static final int BATCH_SIZE = 1_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void uuidV7VersusRandomUuid() {
+        Result random = insert("bench_inventory_uuid_v4", UUID::randomUUID);
+        Result timeOrdered = insert("bench_inventory_uuid_v7", UuidV7Generator::next);
+
+        log.info("{} filas", ROWS);
+        log.info("  UUID v4: {} filas/s, índice PK {} MB", random.rowsPerSecond(), random.indexBytes() >> 20);
+        log.info("  UUID v7: {} filas/s, índice PK {} MB", timeOrdered.rowsPerSecond(), timeOrdered.indexBytes() >> 20);
+
+        assertThat(timeOrdered.indexBytes()).isLessThan(random.indexBytes());
+    }
+
+    private Result insert(String table, Supplier<UUID> ids) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+        jdbcTemplate.execute("CREATE TABLE " + table + " (" +
+                "id UUID PRIMARY KEY, product_id UUID NOT NULL, quantity INTEGER NOT NULL, " +
+                "created_at TIMESTAMP WITH TIME ZONE NOT NULL)");
+
+        String sql = "INSERT INTO " + table + " (id, product_id, quantity, created_at) VALUES (?, ?, ?, ?)";
+        UUID productId = UUID.randomUUID();
+        long start = System.nanoTime();
+        for (int done = 0; done < ROWS; done += BATCH_SIZE) {
+            List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < Math.min(BATCH_SIZE, ROWS - done); i++) {
+                batch.add(new Object[]{ids.get(), productId, ThreadLocalRandom.current().nextInt(1, 100),
+                        Timestamp.from(Instant.now())});
+            }
+            jdbcTemplate.batchUpdate(sql, batch);
+        }
+        long nanos = System.nanoTime() - start;
+
+        Long indexBytes = jdbcTemplate.queryForObject("SELECT pg_relation_size(?::regclass)", Long.class,
+                table + "_pkey");
+        jdbcTemplate.execute("DROP TABLE " + table);
+        return new Result(ROWS * TimeUnit.SECONDS.toNanos(1) / Math.max(1, nanos), indexBytes);
+    }
+
+    private record Result(long rowsPerSecond, long indexBytes) {
+    }
+}
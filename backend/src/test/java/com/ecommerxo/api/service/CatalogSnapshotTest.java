@@ -0,0 +1,62 @@
+package com.ecommerxo.api.service;
+
+import com.ecommerxo.api.dto.ProductDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Los cambios por lotes producen una versión nueva con el contenido correcto a
+ * través de varios trozos, sin tocar la instantánea anterior.
+ */
+class CatalogSnapshotTest {
+
+    private static final int PRODUCTS = CatalogSnapshot.CHUNK_SIZE * 2 + 10;
+
+    @Test
+    void batchesKeepPreviousSnapshotIntact() {
+        List<ProductDTO> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(product(UUID.randomUUID(), i));
+        }
+        CatalogSnapshot first = CatalogSnapshot.of(1, products);
+        assertThat(first.list()).containsExactlyElementsOf(products);
+
+        // Un cambio en cada extremo y un alta al final del último trozo
+        ProductDTO changedFirst = product(products.get(0).getId(), -1);
+        ProductDTO changedLast = product(products.get(PRODUCTS - 1).getId(), -2);
+        ProductDTO added = product(UUID.randomUUID(), PRODUCTS);
+        CatalogSnapshot second = first.with(List.of(changedFirst, changedLast, added), Set.of());
+        assertThat(second.version()).isEqualTo(2);
+        assertThat(second.size()).isEqualTo(PRODUCTS + 1);
+        assertThat(second.get(changedFirst.getId())).isEqualTo(changedFirst);
+        assertThat(second.get(changedLast.getId())).isEqualTo(changedLast);
+        assertThat(second.list().get(PRODUCTS)).isEqualTo(added);
+        assertThat(first.list()).containsExactlyElementsOf(products);
+
+        // Sin cambios reales se conserva la misma instantánea
+        assertThat(second.with(List.of(changedFirst), Set.of())).isSameAs(second);
+
+        CatalogSnapshot third = second.with(List.of(), Set.of(changedFirst.getId()));
+        assertThat(third.size()).isEqualTo(PRODUCTS);
+        assertThat(third.get(changedFirst.getId())).isNull();
+        assertThat(third.list()).doesNotContain(changedFirst);
+        assertThat(second.get(changedFirst.getId())).isEqualTo(changedFirst);
+
+        assertThat(CatalogSnapshot.of(9, third.list()).sameProducts(third)).isTrue();
+        assertThat(third.sameProducts(second)).isFalse();
+    }
+
+    private static ProductDTO product(UUID id, int stock) {
+        ProductDTO product = new ProductDTO();
+        product.setId(id);
+        product.setName("Producto " + id);
+        product.setStockQuantity(stock);
+        return product;
+    }
+}
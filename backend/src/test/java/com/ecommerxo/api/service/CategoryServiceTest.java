@@ -0,0 +1,43 @@
+package com.ecommerxo.api.service;
+
+import com.ecommerxo.api.PostgresIntegrationTest;
+import com.ecommerxo.api.dto.CategoryDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Las entradas de la cache de categorías llevan la versión en la clave: tras un
+ * cambio las lecturas usan claves nuevas y nunca una carga de la versión anterior.
+ */
+class CategoryServiceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    void changeMovesReadsToNewVersionKeys() {
+        Cache cache = cacheManager.getCache("categories");
+        long version = categoryService.getCacheVersion();
+        List<CategoryDTO> before = categoryService.getAllCategories();
+        assertThat(cache.get(version + ":all")).isNotNull();
+
+        // Lo que guardaría una carga lenta que empezó antes del cambio
+        CategoryDTO category = new CategoryDTO();
+        category.setName("Categoría versionada");
+        categoryService.createCategory(category);
+        cache.put(version + ":all", before);
+
+        assertThat(categoryService.getCacheVersion()).isGreaterThan(version);
+        assertThat(categoryService.getAllCategories()).extracting(CategoryDTO::getName)
+                .contains("Categoría versionada");
+    }
+}
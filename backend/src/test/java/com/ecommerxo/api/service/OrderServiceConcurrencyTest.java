@@ -0,0 +1,102 @@
+package com.ecommerxo.api.service;
+
+import com.ecommerxo.api.PostgresIntegrationTest;
+import com.ecommerxo.api.dto.OrderDTO;
+import com.ecommerxo.api.dto.OrderItemDTO;
+import com.ecommerxo.api.model.Product;
+import com.ecommerxo.api.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Muchos checkouts simultáneos del mismo producto con poco stock: ni los UPDATE
+ * condicionales ni el ledger en memoria deben vender más unidades de las que hay.
+ */
+class OrderServiceConcurrencyTest extends PostgresIntegrationTest {
+
+    private static final UUID CUSTOMER_ID = UUID.fromString("770e8400-e29b-41d4-a716-446655440003");
+    private static final int INITIAL_STOCK = 20;
+    private static final int ORDERS = 100;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentOrdersNeverOversell() throws Exception {
+        Product product = new Product();
+        product.setName("Producto concurrencia");
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStockQuantity(INITIAL_STOCK);
+        product.setMinStockLevel(0);
+        product.setSku("CONC-" + UUID.randomUUID());
+        product = productRepository.save(product);
+        UUID productId = product.getId();
+
+        OrderItemDTO item = new OrderItemDTO();
+        item.setProductId(productId);
+        item.setQuantity(1);
+        OrderDTO order = new OrderDTO();
+        order.setItems(List.of(item));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < ORDERS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        orderService.createOrder(CUSTOMER_ID, order);
+                        return true;
+                    } catch (IllegalStateException ex) {
+                        assertThat(ex).hasMessageContaining("Stock insuficiente");
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int accepted = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(60, TimeUnit.SECONDS)) {
+                    accepted++;
+                }
+            }
+            // Con el ledger las reservas llegan a products en el flush periódico
+            stockLedger.flush();
+
+            int finalStock = productRepository.findById(productId).orElseThrow().getStockQuantity();
+            assertThat(finalStock).isGreaterThanOrEqualTo(0);
+            assertThat(accepted).isEqualTo(INITIAL_STOCK);
+            assertThat(finalStock).isZero();
+            assertThat(jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(SUM(quantity), 0) FROM order_items WHERE product_id = ?",
+                    Integer.class, productId)).isEqualTo(INITIAL_STOCK);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
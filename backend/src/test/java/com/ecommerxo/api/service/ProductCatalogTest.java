@@ -0,0 +1,147 @@
+package com.ecommerxo.api.service;
+
+import com.ecommerxo.api.PostgresIntegrationTest;
+import com.ecommerxo.api.dto.OrderDTO;
+import com.ecommerxo.api.dto.OrderItemDTO;
+import com.ecommerxo.api.dto.ProductDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * La instantánea del catálogo sigue al stock de la base de datos: reservas y
+ * liberaciones por SQL, movimientos de inventario y, para lo que no pasa por la
+ * aplicación, la reconstrucción periódica. La cache "products" guarda cada
+ * modificación con su updatedAt nuevo, del que depende el ETag del producto, y
+ * pierde las entradas cuyo stock cambió por SQL.
+ */
+class ProductCatalogTest extends PostgresIntegrationTest {
+
+    private static final UUID CUSTOMER_ID = UUID.fromString("770e8400-e29b-41d4-a716-446655440003");
+
+    @Autowired
+    private ProductCatalog productCatalog;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void snapshotFollowsStockChanges() throws Exception {
+        ProductDTO product = new ProductDTO();
+        product.setName("Producto catálogo");
+        product.setPrice(new BigDecimal("10.00"));
+        product.setMinStockLevel(0);
+        product.setSku("CAT-" + UUID.randomUUID());
+        UUID productId = productService.createProduct(product).getId();
+        jdbcTemplate.update("UPDATE products SET stock_quantity = 10 WHERE id = ?", productId);
+        productCatalog.getAllProducts();
+        productCatalog.rebuild();
+        assertThat(stockInCatalog(productId)).isEqualTo(10);
+
+        String etag = productCatalog.getEtag();
+        productCatalog.awaitPublished();
+        assertThat(productService.getProduct(productId).getStockQuantity()).isEqualTo(10);
+        orderService.createOrder(CUSTOMER_ID, order(productId, 3));
+        productCatalog.awaitPublished();
+        assertThat(stockInCatalog(productId)).isEqualTo(7);
+        // La reserva por SQL desaloja también la entrada de la cache "products"
+        assertThat(productService.getProduct(productId).getStockQuantity()).isEqualTo(7);
+        assertThat(productCatalog.getEtag()).isNotEqualTo(etag);
+
+        transactionTemplate.executeWithoutResult(status -> stockReservationService.release(Map.of(productId, 3)));
+        productCatalog.awaitPublished();
+        assertThat(stockInCatalog(productId)).isEqualTo(10);
+
+        inventoryService.recordInventoryMovement(productId, 4, "entrada", "Reposición");
+        productCatalog.awaitPublished();
+        assertThat(stockInCatalog(productId)).isEqualTo(stockInDatabase(productId)).isGreaterThan(10);
+
+        // Fuera de la aplicación: solo lo recoge la reconstrucción
+        jdbcTemplate.update("UPDATE products SET stock_quantity = 42 WHERE id = ?", productId);
+        assertThat(stockInCatalog(productId)).isNotEqualTo(42);
+        etag = productCatalog.getEtag();
+        productCatalog.rebuild();
+        assertThat(stockInCatalog(productId)).isEqualTo(42);
+        assertThat(productCatalog.getEtag()).isNotEqualTo(etag);
+
+        etag = productCatalog.getEtag();
+        productCatalog.rebuild();
+        assertThat(productCatalog.getEtag()).isEqualTo(etag);
+
+        // Sin movimientos ni órdenes, para poder borrarlo
+        product.setSku("CAT-" + UUID.randomUUID());
+        UUID deletedId = productService.createProduct(product).getId();
+        productCatalog.awaitPublished();
+        assertThat(productCatalog.getAllProducts()).extracting(ProductDTO::getId).contains(deletedId);
+        productService.deleteProduct(deletedId);
+        productCatalog.awaitPublished();
+        assertThat(productCatalog.getAllProducts()).extracting(ProductDTO::getId).doesNotContain(deletedId);
+    }
+
+    @Test
+    void updatedProductIsCachedWithNewUpdatedAt() throws InterruptedException {
+        ProductDTO product = new ProductDTO();
+        product.setName("Producto ETag");
+        product.setPrice(new BigDecimal("10.00"));
+        product.setMinStockLevel(0);
+        product.setSku("ETAG-" + UUID.randomUUID());
+        ProductDTO created = productService.createProduct(product);
+        assertThat(created.getUpdatedAt()).isNotNull();
+
+        Thread.sleep(5);
+        created.setName("Producto ETag renombrado");
+        ProductDTO updated = productService.updateProduct(created.getId(), created);
+        assertThat(updated.getUpdatedAt()).isAfter(created.getUpdatedAt());
+        assertThat(productService.getProduct(created.getId()).getUpdatedAt()).isEqualTo(updated.getUpdatedAt());
+
+        Thread.sleep(5);
+        ProductDTO restocked = productService.updateStock(created.getId(), 2, "Reposición");
+        assertThat(restocked.getUpdatedAt()).isAfter(updated.getUpdatedAt());
+        assertThat(productService.getProduct(created.getId()).getUpdatedAt()).isEqualTo(restocked.getUpdatedAt());
+    }
+
+    private int stockInCatalog(UUID productId) {
+        List<ProductDTO> products = productCatalog.getAllProducts();
+        return products.stream()
+                .filter(product -> product.getId().equals(productId))
+                .findFirst()
+                .orElseThrow()
+                .getStockQuantity();
+    }
+
+    private int stockInDatabase(UUID productId) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+    }
+
+    private static OrderDTO order(UUID productId, int quantity) {
+        OrderItemDTO item = new OrderItemDTO();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        OrderDTO order = new OrderDTO();
+        order.setItems(List.of(item));
+        return order;
+    }
+}
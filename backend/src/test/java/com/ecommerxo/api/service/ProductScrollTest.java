@@ -0,0 +1,50 @@
+package com.ecommerxo.api.service;
+
+import com.ecommerxo.api.PostgresIntegrationTest;
+import com.ecommerxo.api.dto.CursorPageDTO;
+import com.ecommerxo.api.dto.ProductDTO;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * El recorrido por cursor devuelve cada producto una sola vez y en el orden de
+ * {@code ORDER BY clave, id}; los productos de ejemplo comparten created_at.
+ */
+class ProductScrollTest extends PostgresIntegrationTest {
+
+    private static final int PAGE_SIZE = 3;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @ParameterizedTest
+    @CsvSource({
+            "name, ASC, name", "name, DESC, name",
+            "price, ASC, price", "price, DESC, price",
+            "createdAt, ASC, created_at", "createdAt, DESC, created_at"})
+    void scrollVisitsEveryProductOnceInOrder(String sortBy, Sort.Direction direction, String column) {
+        List<UUID> scrolled = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPageDTO<ProductDTO> page = productService.scrollProducts(cursor, PAGE_SIZE, sortBy, direction);
+            page.getContent().forEach(product -> scrolled.add(product.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        List<UUID> expected = jdbcTemplate.queryForList(
+                "SELECT id FROM products ORDER BY " + column + " " + direction + ", id " + direction, UUID.class);
+        assertThat(scrolled).containsExactlyElementsOf(expected);
+    }
+}
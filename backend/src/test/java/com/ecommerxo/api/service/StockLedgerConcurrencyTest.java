@@ -0,0 +1,11 @@
+package com.ecommerxo.api.service;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * El mismo escenario que {@link OrderServiceConcurrencyTest} con las reservas
+ * admitidas por {@link StockLedger}.
+ */
+@TestPropertySource(properties = "app.stock-ledger.enabled=true")
+class StockLedgerConcurrencyTest extends OrderServiceConcurrencyTest {
+}
@@ -0,0 +1,81 @@
+package com.ecommerxo.api.service;
+
+import com.ecommerxo.api.PostgresIntegrationTest;
+import com.ecommerxo.api.dto.OrderDTO;
+import com.ecommerxo.api.dto.OrderItemDTO;
+import com.ecommerxo.api.exception.ResourceNotFoundException;
+import com.ecommerxo.api.model.Product;
+import com.ecommerxo.api.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Una orden con varias líneas y un producto inexistente: el ledger no debe quedarse
+ * con las unidades de las líneas válidas ni con contadores de IDs inventados.
+ */
+@TestPropertySource(properties = "app.stock-ledger.enabled=true")
+class StockLedgerMissingProductTest extends PostgresIntegrationTest {
+
+    private static final UUID CUSTOMER_ID = UUID.fromString("770e8400-e29b-41d4-a716-446655440003");
+    private static final int INITIAL_STOCK = 3;
+    // Mayor que cualquier otro UUID: la línea inexistente se procesa después de la válida
+    private static final UUID MISSING_ID = new UUID(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Test
+    void missingProductLeavesStockOfOtherLinesAvailable() {
+        Product product = new Product();
+        product.setName("Producto ledger");
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStockQuantity(INITIAL_STOCK);
+        product.setMinStockLevel(0);
+        product.setSku("LEDGER-" + UUID.randomUUID());
+        UUID productId = productRepository.save(product).getId();
+
+        int trackedBefore = stockLedger.trackedProducts();
+        assertThatThrownBy(() -> orderService.createOrder(CUSTOMER_ID, order(productId, INITIAL_STOCK, MISSING_ID)))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> orderService.createOrder(CUSTOMER_ID, order(productId, 1, UUID.randomUUID())))
+                .isInstanceOf(ResourceNotFoundException.class);
+        // Solo el producto existente tiene contador
+        assertThat(stockLedger.trackedProducts()).isEqualTo(trackedBefore + 1);
+
+        // Todo el stock sigue a la venta
+        orderService.createOrder(CUSTOMER_ID, order(productId, INITIAL_STOCK));
+        stockLedger.flush();
+        assertThat(productRepository.findById(productId).orElseThrow().getStockQuantity()).isZero();
+    }
+
+    private static OrderDTO order(UUID productId, int quantity, UUID... missingIds) {
+        OrderItemDTO item = new OrderItemDTO();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        List<OrderItemDTO> items = new ArrayList<>(List.of(item));
+        for (UUID missingId : missingIds) {
+            OrderItemDTO missing = new OrderItemDTO();
+            missing.setProductId(missingId);
+            missing.setQuantity(1);
+            items.add(missing);
+        }
+        OrderDTO order = new OrderDTO();
+        order.setItems(items);
+        return order;
+    }
+}
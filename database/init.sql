@@ -75,6 +75,25 @@ CREATE TABLE stock_predictions (
     created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Segundo nivel de cache compartido entre réplicas (app.cache.shared.enabled).
+-- UNLOGGED: sin WAL, se vacía tras una caída, que para una cache es aceptable
+CREATE UNLOGGED TABLE cache_entries (
+    cache_name VARCHAR(100) NOT NULL,
+    cache_key VARCHAR(255) NOT NULL,
+    value BYTEA NOT NULL,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (cache_name, cache_key)
+);
+
+-- Versión de los datos cacheados con clave versionada (ETag y claves de cache),
+-- común a todas las réplicas. Tabla normal: un ETag no puede repetirse tras una caída
+CREATE TABLE cache_versions (
+    cache_name VARCHAR(100) PRIMARY KEY,
+    version BIGINT NOT NULL
+);
+
+INSERT INTO cache_versions (cache_name, version) VALUES ('categories', 1);
+
 -- Índices
 CREATE INDEX idx_products_category ON products(category_id);
 CREATE INDEX idx_inventory_product ON inventory(product_id);
@@ -82,6 +101,7 @@ CREATE INDEX idx_orders_user ON orders(user_id);
 CREATE INDEX idx_order_items_order ON order_items(order_id);
 CREATE INDEX idx_order_items_product ON order_items(product_id);
 CREATE INDEX idx_stock_predictions_product ON stock_predictions(product_id);
+CREATE INDEX idx_cache_entries_expires_at ON cache_entries(expires_at);
 
 -- Trigger para actualizar updated_at
 CREATE OR REPLACE FUNCTION update_updated_at_column()
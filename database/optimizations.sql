@@ -21,6 +21,15 @@ CREATE INDEX IF NOT EXISTS idx_products_category_price ON products(category, pri
 CREATE INDEX IF NOT EXISTS idx_orders_status_date ON orders(status, created_at);
 CREATE INDEX IF NOT EXISTS idx_inventory_product_quantity ON inventory(product_id, quantity);
 
+-- Reservas del ledger de stock pendientes de aplicar a products
+CREATE INDEX IF NOT EXISTS idx_inventory_pending_reservations ON inventory(product_id) WHERE type = 'reserva';
+
+-- Paginación por cursor: (clave de orden, id) para WHERE (clave, id) > (?, ?) sin OFFSET
+CREATE INDEX IF NOT EXISTS idx_products_name_id ON products(name, id);
+CREATE INDEX IF NOT EXISTS idx_products_price_id ON products(price, id);
+CREATE INDEX IF NOT EXISTS idx_products_created_at_id ON products(created_at, id);
+CREATE INDEX IF NOT EXISTS idx_orders_created_at_id ON orders(created_at, id);
+
 -- Vistas materializadas para reportes rápidos (PostgreSQL)
 CREATE MATERIALIZED VIEW IF NOT EXISTS mv_product_sales_summary AS
 SELECT 